@@ -0,0 +1,32 @@
+package com.github.tfaga.lynx.beans;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read only list view over an array that is never modified after construction.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class ArrayView<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    private final static long serialVersionUID = 1L;
+
+    private final E[] elements;
+
+    ArrayView(E[] elements) {
+        this.elements = elements;
+    }
+
+    @Override
+    public E get(int index) {
+        return elements[index];
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+}
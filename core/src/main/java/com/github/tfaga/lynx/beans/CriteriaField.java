@@ -1,5 +1,7 @@
 package com.github.tfaga.lynx.beans;
 
+import com.github.tfaga.lynx.utils.EntityDescriptor;
+
 import javax.persistence.criteria.Path;
 import java.io.Serializable;
 
@@ -13,12 +15,21 @@ public class CriteriaField implements Serializable {
 
     private Path path;
     private Boolean containsToMany;
+    private EntityDescriptor.AttributeDescriptor attribute;
 
     public CriteriaField(Path path, Boolean containsToMany) {
         this.path = path;
         this.containsToMany = containsToMany;
     }
 
+    /**
+     * @since 1.3.0
+     */
+    public CriteriaField(Path path, Boolean containsToMany, EntityDescriptor.AttributeDescriptor attribute) {
+        this(path, containsToMany);
+        this.attribute = attribute;
+    }
+
     public Path getPath() {
         return path;
     }
@@ -26,4 +37,14 @@ public class CriteriaField implements Serializable {
     public Boolean containsToMany() {
         return containsToMany;
     }
+
+    /**
+     * Returns the descriptor of the attribute at the end of the path, if it was resolved through
+     * an {@link EntityDescriptor}.
+     *
+     * @since 1.3.0
+     */
+    public EntityDescriptor.AttributeDescriptor getAttribute() {
+        return attribute;
+    }
 }
@@ -0,0 +1,161 @@
+package com.github.tfaga.lynx.beans;
+
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.exceptions.ConversionException;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable {@link QueryFilter} used by {@link ImmutableQueryParameters}. The list values are kept in
+ * an array and the hash code is computed once on construction.
+ * <p>
+ * The typed values are converted once for the attribute type they are requested for and reused, so
+ * cached query parameters are executed without converting their values again.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class ImmutableQueryFilter extends QueryFilter {
+
+    private final static long serialVersionUID = 1L;
+
+    private final String field;
+
+    private final FilterOperation operation;
+
+    private final String value;
+
+    private final Long dateValue;
+
+    private final List<String> values;
+
+    private final int hashCode;
+
+    private transient volatile TypedValue typedValue;
+    private transient volatile TypedValue typedValues;
+
+    public ImmutableQueryFilter(String field, FilterOperation operation, String value, Date dateValue,
+                                List<String> values) {
+        this.field = field;
+        this.operation = operation;
+        this.value = value;
+        this.dateValue = dateValue == null ? null : dateValue.getTime();
+        this.values = new ArrayView<>(values == null ? new String[0] : values.toArray(new String[values.size()]));
+
+        this.hashCode = Objects.hash(this.field, this.operation, this.value, this.dateValue, this.values);
+    }
+
+    public static ImmutableQueryFilter copyOf(QueryFilter filter) {
+
+        if (filter instanceof ImmutableQueryFilter) return (ImmutableQueryFilter) filter;
+
+        return new ImmutableQueryFilter(filter.getField(), filter.getOperation(), filter.getValue(),
+                filter.getDateValue(), filter.getValues());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImmutableQueryFilter filter = (ImmutableQueryFilter) o;
+        return hashCode == filter.hashCode &&
+                Objects.equals(field, filter.field) &&
+                operation == filter.operation &&
+                Objects.equals(value, filter.value) &&
+                Objects.equals(dateValue, filter.dateValue) &&
+                Objects.equals(values, filter.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String getField() {
+        return field;
+    }
+
+    @Override
+    public void setField(String field) {
+        throw new UnsupportedOperationException("The query filter is immutable");
+    }
+
+    @Override
+    public FilterOperation getOperation() {
+        return operation;
+    }
+
+    @Override
+    public void setOperation(FilterOperation operation) {
+        throw new UnsupportedOperationException("The query filter is immutable");
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public void setValue(String value) {
+        throw new UnsupportedOperationException("The query filter is immutable");
+    }
+
+    @Override
+    public List<String> getValues() {
+        return values;
+    }
+
+    @Override
+    public Date getDateValue() {
+        return dateValue == null ? null : new Date(dateValue);
+    }
+
+    @Override
+    public void setDateValue(Date dateValue) {
+        throw new UnsupportedOperationException("The query filter is immutable");
+    }
+
+    @Override
+    public Object getTypedValue(Class<?> type) throws ConversionException {
+
+        TypedValue cached = typedValue;
+
+        if (cached != null && cached.type == type) return cached.value;
+
+        Object value = super.getTypedValue(type);
+
+        typedValue = new TypedValue(type, value);
+
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object> getTypedValues(Class<?> type) throws ConversionException {
+
+        TypedValue cached = typedValues;
+
+        if (cached != null && cached.type == type) return (List<Object>) cached.value;
+
+        List<Object> values = Collections.unmodifiableList(super.getTypedValues(type));
+
+        typedValues = new TypedValue(type, values);
+
+        return values;
+    }
+
+    private static final class TypedValue {
+
+        private final Class<?> type;
+        private final Object value;
+
+        TypedValue(Class<?> type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.tfaga.lynx.beans;
+
+import com.github.tfaga.lynx.enums.OrderDirection;
+
+/**
+ * Immutable {@link QueryOrder} used by {@link ImmutableQueryParameters}.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class ImmutableQueryOrder extends QueryOrder {
+
+    private final static long serialVersionUID = 1L;
+
+    private final String field;
+
+    private final OrderDirection order;
+
+    public ImmutableQueryOrder(String field, OrderDirection order) {
+        this.field = field;
+        this.order = order;
+    }
+
+    public static ImmutableQueryOrder copyOf(QueryOrder order) {
+
+        if (order instanceof ImmutableQueryOrder) return (ImmutableQueryOrder) order;
+
+        return new ImmutableQueryOrder(order.getField(), order.getOrder());
+    }
+
+    @Override
+    public String getField() {
+        return field;
+    }
+
+    @Override
+    public void setField(String field) {
+        throw new UnsupportedOperationException("The query order is immutable");
+    }
+
+    @Override
+    public OrderDirection getOrder() {
+        return order;
+    }
+
+    @Override
+    public void setOrder(OrderDirection order) {
+        throw new UnsupportedOperationException("The query order is immutable");
+    }
+}
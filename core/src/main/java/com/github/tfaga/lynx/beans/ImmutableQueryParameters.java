@@ -0,0 +1,165 @@
+package com.github.tfaga.lynx.beans;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of {@link QueryParameters} that can be shared between threads and reused
+ * across requests, for example when cached. The order, fields and filters are kept in arrays,
+ * every setter and list modification throws {@link UnsupportedOperationException} and the hash
+ * code is computed once on construction.
+ * <p>
+ * Since it extends {@link QueryParameters}, it is accepted everywhere the mutable query parameters
+ * are.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class ImmutableQueryParameters extends QueryParameters {
+
+    private final static long serialVersionUID = 1L;
+
+    private final Long limit;
+    private final Long offset;
+
+    private final String after;
+    private final String before;
+
+    private final List<QueryOrder> order;
+    private final List<String> fields;
+    private final List<QueryFilter> filters;
+
+    private final int hashCode;
+
+    public ImmutableQueryParameters(Long limit, Long offset, List<QueryOrder> order, List<String> fields,
+                                    List<QueryFilter> filters) {
+        this(limit, offset, null, null, order, fields, filters);
+    }
+
+    public ImmutableQueryParameters(Long limit, Long offset, String after, String before, List<QueryOrder> order,
+                                    List<String> fields, List<QueryFilter> filters) {
+        this.limit = limit;
+        this.offset = offset;
+        this.after = after;
+        this.before = before;
+        this.order = new ArrayView<>(order.stream().map(ImmutableQueryOrder::copyOf).toArray(QueryOrder[]::new));
+        this.fields = new ArrayView<>(fields.toArray(new String[fields.size()]));
+        this.filters = new ArrayView<>(filters.stream().map(ImmutableQueryFilter::copyOf)
+                .toArray(QueryFilter[]::new));
+
+        int result = Objects.hash(this.limit, this.offset, this.after, this.before, this.fields, this.filters);
+
+        for (QueryOrder o : this.order) {
+            result = 31 * result + Objects.hash(o.getField(), o.getOrder());
+        }
+
+        this.hashCode = result;
+    }
+
+    public static ImmutableQueryParameters copyOf(QueryParameters params) {
+
+        if (params instanceof ImmutableQueryParameters) return (ImmutableQueryParameters) params;
+
+        return new ImmutableQueryParameters(params.getLimit(), params.getOffset(), params.getAfter(),
+                params.getBefore(), params.getOrder(), params.getFields(), params.getFilters());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImmutableQueryParameters params = (ImmutableQueryParameters) o;
+
+        if (hashCode != params.hashCode ||
+                !Objects.equals(limit, params.limit) ||
+                !Objects.equals(offset, params.offset) ||
+                !Objects.equals(after, params.after) ||
+                !Objects.equals(before, params.before) ||
+                !fields.equals(params.fields) ||
+                !filters.equals(params.filters) ||
+                order.size() != params.order.size()) {
+            return false;
+        }
+
+        // Query order equality only considers the field, the direction must match as well
+        for (int i = 0; i < order.size(); i++) {
+
+            if (!Objects.equals(order.get(i).getField(), params.order.get(i).getField()) ||
+                    order.get(i).getOrder() != params.order.get(i).getOrder()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public Long getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void setLimit(Long limit) {
+        throw new UnsupportedOperationException("The query parameters are immutable");
+    }
+
+    @Override
+    public void setLimit(Integer limit) {
+        throw new UnsupportedOperationException("The query parameters are immutable");
+    }
+
+    @Override
+    public Long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void setOffset(Long offset) {
+        throw new UnsupportedOperationException("The query parameters are immutable");
+    }
+
+    @Override
+    public void setOffset(Integer offset) {
+        throw new UnsupportedOperationException("The query parameters are immutable");
+    }
+
+    @Override
+    public String getAfter() {
+        return after;
+    }
+
+    @Override
+    public void setAfter(String after) {
+        throw new UnsupportedOperationException("The query parameters are immutable");
+    }
+
+    @Override
+    public String getBefore() {
+        return before;
+    }
+
+    @Override
+    public void setBefore(String before) {
+        throw new UnsupportedOperationException("The query parameters are immutable");
+    }
+
+    @Override
+    public List<QueryOrder> getOrder() {
+        return order;
+    }
+
+    @Override
+    public List<String> getFields() {
+        return fields;
+    }
+
+    @Override
+    public List<QueryFilter> getFilters() {
+        return filters;
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.tfaga.lynx.beans;
 
 import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.exceptions.ConversionException;
+import com.github.tfaga.lynx.helper.ConversionHelper;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -91,4 +93,31 @@ public class QueryFilter implements Serializable {
     public void setDateValue(Date dateValue) {
         this.dateValue = dateValue;
     }
+
+    /**
+     * Returns the value converted to the given attribute type. When no value is set, the date value
+     * is converted instead, so date literals can be compared with any temporal attribute. Returns
+     * {@code null} when there is nothing to compare with an attribute of the type.
+     */
+    public Object getTypedValue(Class<?> type) throws ConversionException {
+
+        if (getValue() != null) return ConversionHelper.toTargetObject(type, getValue());
+
+        return ConversionHelper.fromDateLiteral(type, getDateValue());
+    }
+
+    /**
+     * Returns the list values, without nulls, converted to the given attribute type.
+     */
+    public List<Object> getTypedValues(Class<?> type) throws ConversionException {
+
+        List<Object> typedValues = new ArrayList<>(getValues().size());
+
+        for (String v : getValues()) {
+
+            if (v != null) typedValues.add(ConversionHelper.toTargetObject(type, v));
+        }
+
+        return typedValues;
+    }
 }
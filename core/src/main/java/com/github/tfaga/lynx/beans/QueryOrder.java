@@ -23,12 +23,12 @@ public class QueryOrder implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         QueryOrder order = (QueryOrder) o;
-        return Objects.equals(field, order.field);
+        return Objects.equals(getField(), order.getField());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(field);
+        return Objects.hash(getField());
     }
 
     public String getField() {
@@ -0,0 +1,46 @@
+package com.github.tfaga.lynx.beans;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Page of entities returned by {@link com.github.tfaga.lynx.utils.JPAUtils#queryPage}, together with
+ * the number of all entities that match the filters and whether more entities follow the page.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryPage<T> implements Serializable {
+
+    private final static long serialVersionUID = 1L;
+
+    private final List<T> items;
+    private final Long total;
+    private final boolean hasMore;
+
+    public QueryPage(List<T> items, Long total, boolean hasMore) {
+        this.items = items;
+        this.total = total;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Returns the number of all entities that match the filters, regardless of the limit, offset
+     * and cursors of the query parameters.
+     */
+    public Long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns whether more entities follow the page, or precede it when it ends at a
+     * {@code before} cursor. Pages without a limit contain all remaining entities.
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Tilen Faganel
@@ -19,6 +20,9 @@ public class QueryParameters implements Serializable {
     private Long limit;
     private Long offset;
 
+    private String after;
+    private String before;
+
     private List<QueryOrder> order;
     private List<String> fields;
     private List<QueryFilter> filters;
@@ -47,6 +51,40 @@ public class QueryParameters implements Serializable {
         this.offset = offset.longValue();
     }
 
+    /**
+     * Returns the opaque cursor of the row after which the page starts, as created by
+     * {@link com.github.tfaga.lynx.utils.JPAUtils#createCursor}.
+     *
+     * @since 1.3.0
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * @since 1.3.0
+     */
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    /**
+     * Returns the opaque cursor of the row before which the page ends, as created by
+     * {@link com.github.tfaga.lynx.utils.JPAUtils#createCursor}.
+     *
+     * @since 1.3.0
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * @since 1.3.0
+     */
+    public void setBefore(String before) {
+        this.before = before;
+    }
+
     public List<QueryOrder> getOrder() {
 
         if (order == null)
@@ -92,4 +130,12 @@ public class QueryParameters implements Serializable {
     public static QueryStringBuilder query(String queryString) {
         return new QueryStringBuilder().query(queryString);
     }
+
+    public static QueryStringBuilder parameters(Map<String, List<String>> parameters) {
+        return new QueryStringBuilder().parameters(parameters);
+    }
+
+    public static QueryStringBuilder parameterMap(Map<String, String[]> parameterMap) {
+        return new QueryStringBuilder().parameterMap(parameterMap);
+    }
 }
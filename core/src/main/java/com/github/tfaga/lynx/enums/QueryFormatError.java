@@ -7,5 +7,5 @@ package com.github.tfaga.lynx.enums;
  */
 public enum QueryFormatError {
 
-    MALFORMED, NOT_A_NUMBER, NEGATIVE, NO_SUCH_CONSTANT
+    MALFORMED, NOT_A_NUMBER, NEGATIVE, NO_SUCH_CONSTANT, LIMIT_EXCEEDED
 }
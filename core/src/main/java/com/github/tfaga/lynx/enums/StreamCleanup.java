@@ -0,0 +1,26 @@
+package com.github.tfaga.lynx.enums;
+
+/**
+ * What happens to the entities of a stream after each batch of them was processed, so they do not
+ * accumulate in the persistence context.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public enum StreamCleanup {
+
+    /**
+     * The entities stay managed.
+     */
+    NONE,
+
+    /**
+     * The entities of the batch are detached, other managed entities are not affected.
+     */
+    DETACH,
+
+    /**
+     * The persistence context is cleared, which also detaches all other managed entities.
+     */
+    CLEAR
+}
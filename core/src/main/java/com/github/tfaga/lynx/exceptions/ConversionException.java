@@ -6,7 +6,20 @@ package com.github.tfaga.lynx.exceptions;
  */
 public class ConversionException extends Exception {
 
+    private String value;
+
     public ConversionException(Throwable cause) {
         super(cause);
     }
+
+    public ConversionException(Throwable cause, String value) {
+
+        super(cause);
+
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
 }
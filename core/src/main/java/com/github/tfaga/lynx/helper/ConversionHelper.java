@@ -6,9 +6,11 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.time.*;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.stream.Collectors;
 
 /**
  * @author Tilen Faganel
@@ -20,12 +22,28 @@ public class ConversionHelper {
     private static final Class PCHAR = char.class;
     private static final Class APCHAR = char[].class;
 
+    private static final Class PBYTE = byte.class;
+    private static final Class PSHORT = short.class;
+    private static final Class PINT = int.class;
+    private static final Class PLONG = long.class;
+    private static final Class PFLOAT = float.class;
+    private static final Class PDOUBLE = double.class;
+
     private static final Class OBJECT = Object.class;
     private static final Class BOOLEAN = Boolean.class;
     private static final Class CHAR = Character.class;
     private static final Class ACHAR = Character[].class;
     private static final Class STRING = String.class;
 
+    private static final Class BYTE = Byte.class;
+    private static final Class SHORT = Short.class;
+    private static final Class INTEGER = Integer.class;
+    private static final Class LONG = Long.class;
+    private static final Class FLOAT = Float.class;
+    private static final Class DOUBLE = Double.class;
+    private static final Class BIG_INTEGER = java.math.BigInteger.class;
+    private static final Class BIG_DECIMAL = java.math.BigDecimal.class;
+
     private static final Class UTIL_DATE = java.util.Date.class;
     private static final Class CALENDAR = java.util.Calendar.class;
     private static final Class GREGORIAN_CALENDAR = java.util.GregorianCalendar.class;
@@ -54,7 +72,23 @@ public class ConversionHelper {
         }
 
         try {
-            if (javaClass == BOOLEAN || javaClass == PBOOLEAN) {
+            if (javaClass == INTEGER || javaClass == PINT) {
+                return Integer.valueOf(sourceObject);
+            } else if (javaClass == LONG || javaClass == PLONG) {
+                return Long.valueOf(sourceObject);
+            } else if (javaClass == SHORT || javaClass == PSHORT) {
+                return Short.valueOf(sourceObject);
+            } else if (javaClass == BYTE || javaClass == PBYTE) {
+                return Byte.valueOf(sourceObject);
+            } else if (javaClass == DOUBLE || javaClass == PDOUBLE) {
+                return Double.valueOf(sourceObject);
+            } else if (javaClass == FLOAT || javaClass == PFLOAT) {
+                return Float.valueOf(sourceObject);
+            } else if (javaClass == BIG_DECIMAL) {
+                return new java.math.BigDecimal(sourceObject);
+            } else if (javaClass == BIG_INTEGER) {
+                return new java.math.BigInteger(sourceObject);
+            } else if (javaClass == BOOLEAN || javaClass == PBOOLEAN) {
                 return toBoolean(sourceObject);
             } else if (javaClass == CHAR || javaClass == PCHAR) {
                 return toCharacter(sourceObject);
@@ -97,7 +131,78 @@ public class ConversionHelper {
             }
         } catch (IllegalArgumentException | DateTimeParseException e) {
 
-            throw new ConversionException(e);
+            throw new ConversionException(e, sourceObject);
+        }
+    }
+
+    /**
+     * Converts a date literal, such as the ones parsed from {@code dt'...'} query values, to the given
+     * temporal type. Types without a time zone are converted in UTC. Returns {@code null} for types
+     * that cannot hold a date.
+     */
+    public static Object fromDateLiteral(Class javaClass, Date sourceObject) {
+
+        if (sourceObject == null) return null;
+
+        Instant instant = sourceObject.toInstant();
+
+        if (javaClass == null || javaClass == UTIL_DATE || javaClass == OBJECT) {
+            return sourceObject;
+        } else if (javaClass == CALENDAR || javaClass == GREGORIAN_CALENDAR) {
+            return GregorianCalendar.from(instant.atZone(ZoneOffset.UTC));
+        } else if (javaClass == SQL_DATE) {
+            return java.sql.Date.valueOf(instant.atOffset(ZoneOffset.UTC).toLocalDate());
+        } else if (javaClass == TIME) {
+            return Time.valueOf(instant.atOffset(ZoneOffset.UTC).toLocalTime());
+        } else if (javaClass == TIMESTAMP) {
+            return Timestamp.from(instant);
+        } else if (javaClass == LOCAL_DATE) {
+            return instant.atOffset(ZoneOffset.UTC).toLocalDate();
+        } else if (javaClass == LOCAL_TIME) {
+            return instant.atOffset(ZoneOffset.UTC).toLocalTime();
+        } else if (javaClass == LOCAL_DATETIME) {
+            return instant.atOffset(ZoneOffset.UTC).toLocalDateTime();
+        } else if (javaClass == OFFSET_TIME) {
+            return instant.atOffset(ZoneOffset.UTC).toOffsetTime();
+        } else if (javaClass == OFFSET_DATETIME) {
+            return instant.atOffset(ZoneOffset.UTC);
+        } else if (javaClass == ZONED_DATETIME) {
+            return instant.atZone(ZoneOffset.UTC);
+        } else if (javaClass == INSTANT) {
+            return instant;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Converts a value of the given type to a string that {@link #toTargetObject(Class, String)}
+     * converts back to an equal value. Dates are written as ISO-8601 instants, calendars as zoned
+     * date times and enums by name.
+     *
+     * @since 1.3.0
+     */
+    public static String toSourceString(Class javaClass, Object sourceObject) {
+
+        if (sourceObject == null) return null;
+
+        if (javaClass == APCHAR) {
+            return new String((char[]) sourceObject);
+        } else if (javaClass == ACHAR) {
+            return Arrays.stream((Character[]) sourceObject).map(String::valueOf).collect(Collectors.joining());
+        } else if (javaClass == UTIL_DATE || javaClass == TIMESTAMP) {
+            return sourceObject instanceof Timestamp ? ((Timestamp) sourceObject).toInstant().toString() :
+                    Instant.ofEpochMilli(((Date) sourceObject).getTime()).toString();
+        } else if (javaClass == CALENDAR || javaClass == GREGORIAN_CALENDAR) {
+            Calendar calendar = (Calendar) sourceObject;
+
+            return ZonedDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId()).toString();
+        } else if (javaClass == TIME) {
+            return ((Time) sourceObject).toLocalTime().toString();
+        } else if (sourceObject instanceof Enum) {
+            return ((Enum) sourceObject).name();
+        } else {
+            return sourceObject.toString();
         }
     }
 
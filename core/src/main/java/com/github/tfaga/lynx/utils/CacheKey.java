@@ -0,0 +1,54 @@
+package com.github.tfaga.lynx.utils;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.ref.WeakReference;
+
+/**
+ * Key of an entry of the static caches of {@link JPAUtils}, made of the entity manager factory the
+ * entry belongs to and the key of the entry within it. The factory is held weakly and compared by
+ * identity, so the keys do not keep the metadata of closed factories in memory, and the entries
+ * of closed factories can be told apart and removed.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class CacheKey {
+
+    private final WeakReference<EntityManagerFactory> factory;
+    private final Object key;
+    private final int hash;
+
+    CacheKey(EntityManagerFactory factory, Object key) {
+        this.factory = new WeakReference<>(factory);
+        this.key = key;
+        this.hash = 31 * System.identityHashCode(factory) + key.hashCode();
+    }
+
+    /**
+     * Returns whether the factory of the entry was closed or garbage collected.
+     */
+    boolean isClosed() {
+
+        EntityManagerFactory factory = this.factory.get();
+
+        return factory == null || !factory.isOpen();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) return true;
+
+        if (!(o instanceof CacheKey)) return false;
+
+        CacheKey other = (CacheKey) o;
+        EntityManagerFactory factory = this.factory.get();
+
+        return factory != null && factory == other.factory.get() && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
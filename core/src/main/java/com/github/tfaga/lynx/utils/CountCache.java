@@ -0,0 +1,112 @@
+package com.github.tfaga.lynx.utils;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded, least recently used cache of entity counts with a time to live, keyed by the
+ * entity manager factory, the entity and the set of filters. The cache is safe for use by multiple
+ * threads. Counting of a missing entry happens outside of the lock, so concurrent misses for the
+ * same key may count more than once. The keys hold the factories weakly, and the counts of closed
+ * factories are removed on the next miss of the cache.
+ * <p>
+ * Each entry depends on its entity and the entities its filters join. {@link #invalidate(Class)}
+ * removes the entries that depend on the class of a changed entity, and the counts that were
+ * running at that time are not stored, as they may have missed the change. Counts are shared by
+ * all entity managers, so they do not reflect changes that are not yet committed.
+ * <p>
+ * The entity listeners that invalidate the counts are called when the changes are flushed, before
+ * they are committed. A count that starts after the invalidation and before the commit still reads
+ * the old data and is stored, so counts may be stale for up to one time to live after any write.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class CountCache {
+
+    private final long ttl;
+
+    private final LruCache<CacheKey, CachedCount> entries;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    CountCache(int maxSize, long ttl, TimeUnit unit) {
+
+        if (ttl < 1) throw new IllegalArgumentException("The time to live must be a positive number");
+
+        this.ttl = unit.toNanos(ttl);
+
+        entries = new LruCache<>(maxSize, CacheKey::isClosed);
+    }
+
+    Long get(CacheKey key, Set<Class<?>> dependencies, Supplier<Long> counter) {
+
+        // An invalidation during the count may have been missed by it, so the count is then not stored
+        return entries.get(key, k -> new CachedCount(counter.get(), dependencies, System.nanoTime() + ttl),
+                e -> e.expires - System.nanoTime() > 0).count;
+    }
+
+    /**
+     * Removes the counts of the class of a changed entity, its superclasses, and of the entities
+     * whose filters join them.
+     */
+    public void invalidate(Class<?> entity) {
+
+        invalidations.addAndGet(entries.removeIf(e -> {
+
+            for (Class<?> dependency : e.dependencies) {
+
+                if (dependency.isAssignableFrom(entity)) return true;
+            }
+
+            return false;
+        }));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int getSize() {
+        return entries.getSize();
+    }
+
+    public int getMaxSize() {
+        return entries.getMaxSize();
+    }
+
+    public long getTtl(TimeUnit unit) {
+        return unit.convert(ttl, TimeUnit.NANOSECONDS);
+    }
+
+    public long getHits() {
+        return entries.getHits();
+    }
+
+    public long getMisses() {
+        return entries.getMisses();
+    }
+
+    public long getEvictions() {
+        return entries.getEvictions();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    private static final class CachedCount {
+
+        private final Long count;
+        private final Set<Class<?>> dependencies;
+        private final long expires;
+
+        private CachedCount(Long count, Set<Class<?>> dependencies, long expires) {
+            this.count = count;
+            this.dependencies = dependencies;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.tfaga.lynx.utils;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Entity listener that invalidates the cached counts of an entity when one is persisted, updated
+ * or removed. It can be registered on the entities with {@code @EntityListeners} or for all of
+ * them as a default entity listener in {@code orm.xml}.
+ * <p>
+ * The callbacks are called when the changes are flushed, before they are committed, so a count
+ * of another entity manager that runs in between reads the old data and is cached again. Counts
+ * may therefore be stale for up to one time to live of the cache after any write.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class CountCacheListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidate(Object entity) {
+
+        JPAUtils.invalidateCountCache(entity.getClass());
+    }
+}
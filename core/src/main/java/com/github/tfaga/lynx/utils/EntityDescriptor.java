@@ -0,0 +1,458 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.enums.FilterOperation;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Metadata of an entity class that is needed to build queries: its id attributes and the
+ * attributes of the entity and of every type reachable through its relations and embeddables,
+ * with their Java types, persistent attribute types and the filter operations they support.
+ * <p>
+ * The metamodel is scanned once per entity type, that is once per entity manager factory and
+ * entity class. Resolved dotted paths, including unknown ones, are remembered as well, up to a
+ * limit. Descriptors keep no references to the metamodel and can be shared between threads.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class EntityDescriptor {
+
+    private static final Logger log = Logger.getLogger(EntityDescriptor.class.getSimpleName());
+
+    private static final int MAX_CACHED_PATHS = 1024;
+
+    private static final Map<EntityType<?>, EntityDescriptor> descriptors =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Class<?> entity;
+    private final List<String> idAttributes;
+    private final List<String> idPaths;
+    private final Map<Class<?>, Map<String, AttributeDescriptor>> types;
+
+    private final Map<String, AttributePath> paths = new ConcurrentHashMap<>();
+
+    private EntityDescriptor(EntityType<?> entityType) {
+
+        log.finest("Creating descriptor for entity: " + entityType.getJavaType().getSimpleName());
+
+        List<String> ids = new ArrayList<>();
+
+        for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+
+            if (attribute.isId()) ids.add(attribute.getName());
+        }
+
+        Collections.sort(ids);
+
+        Map<Class<?>, Map<String, AttributeDescriptor>> types = new HashMap<>();
+
+        snapshot(entityType, types);
+
+        List<String> idPaths = new ArrayList<>();
+
+        for (String id : ids) {
+
+            AttributeDescriptor attribute = types.get(entityType.getJavaType()).get(id);
+
+            if (attribute.isManaged()) {
+
+                List<String> parts = new ArrayList<>(types.get(attribute.getJavaType()).keySet());
+
+                Collections.sort(parts);
+
+                parts.forEach(part -> idPaths.add(id + "." + part));
+            } else {
+
+                idPaths.add(id);
+            }
+        }
+
+        this.entity = entityType.getJavaType();
+        this.idAttributes = Collections.unmodifiableList(ids);
+        this.idPaths = Collections.unmodifiableList(idPaths);
+        this.types = Collections.unmodifiableMap(types);
+    }
+
+    public static EntityDescriptor of(EntityManagerFactory emf, Class<?> entity) {
+
+        if (emf == null) throw new IllegalArgumentException("The passed entity manager factory cannot be null");
+
+        return of(emf.getMetamodel(), entity);
+    }
+
+    public static EntityDescriptor of(Metamodel metamodel, Class<?> entity) {
+
+        if (metamodel == null) throw new IllegalArgumentException("The passed metamodel cannot be null");
+
+        if (entity == null) throw new IllegalArgumentException("The passed entity class cannot be null");
+
+        return of(metamodel.entity(entity));
+    }
+
+    public static EntityDescriptor of(EntityType<?> entityType) {
+
+        if (entityType == null) throw new IllegalArgumentException("The passed entity type cannot be null");
+
+        return descriptors.computeIfAbsent(entityType, EntityDescriptor::new);
+    }
+
+    public Class<?> getEntity() {
+        return entity;
+    }
+
+    /**
+     * Returns the name of the id attribute, the first one in alphabetical order if the entity has
+     * more of them, or {@code null} if it has none.
+     */
+    public String getIdAttribute() {
+        return idAttributes.isEmpty() ? null : idAttributes.get(0);
+    }
+
+    public List<String> getIdAttributes() {
+        return idAttributes;
+    }
+
+    /**
+     * Returns the paths of the basic attributes that identify a row, in alphabetical order. Embedded
+     * ids are expanded to the paths of their attributes, such as {@code id.key} and
+     * {@code id.version}.
+     */
+    public List<String> getIdPaths() {
+        return idPaths;
+    }
+
+    /**
+     * Returns the attribute of the entity with the given name, or {@code null} if there is none.
+     */
+    public AttributeDescriptor getAttribute(String name) {
+        return getAttribute(entity, name);
+    }
+
+    /**
+     * Returns the attribute with the given name of the entity or of a type reachable from it, or
+     * {@code null} if there is none.
+     */
+    public AttributeDescriptor getAttribute(Class<?> type, String name) {
+
+        Map<String, AttributeDescriptor> attributes = types.get(type);
+
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    public Collection<AttributeDescriptor> getAttributes() {
+        return types.get(entity).values();
+    }
+
+    /**
+     * Resolves a dotted path, such as {@code account.address.country}, starting at the entity. The
+     * result is cached per path string, also when the path does not exist, so repeated resolution
+     * of the same path, valid or not, is a single lookup.
+     */
+    public AttributePath getPath(String path) {
+
+        if (path == null) throw new IllegalArgumentException("The passed path cannot be null");
+
+        AttributePath resolved = paths.get(path);
+
+        if (resolved != null) return resolved;
+
+        resolved = resolvePath(path);
+
+        if (paths.size() < MAX_CACHED_PATHS) paths.putIfAbsent(path, resolved);
+
+        return resolved;
+    }
+
+    /**
+     * Returns the number of remembered paths, which never exceeds a fixed limit, however many
+     * different paths are resolved.
+     */
+    public int getPathCacheSize() {
+        return paths.size();
+    }
+
+    ///// Private helper methods
+
+    private AttributePath resolvePath(String path) {
+
+        List<AttributeDescriptor> attributes = new ArrayList<>();
+
+        Class<?> type = entity;
+        boolean toMany = false;
+
+        for (String name : path.split("\\.", -1)) {
+
+            AttributeDescriptor attribute = type == null ? null : getAttribute(type, name);
+
+            if (attribute == null) return new AttributePath(path, Collections.emptyList(), false);
+
+            attributes.add(attribute);
+
+            toMany |= attribute.isToMany();
+            type = attribute.isManaged() ? attribute.getJavaType() : null;
+        }
+
+        return new AttributePath(path, Collections.unmodifiableList(attributes), toMany);
+    }
+
+    private static void snapshot(ManagedType<?> managedType, Map<Class<?>, Map<String, AttributeDescriptor>> types) {
+
+        if (types.containsKey(managedType.getJavaType())) return;
+
+        Map<String, AttributeDescriptor> attributes = new HashMap<>();
+
+        types.put(managedType.getJavaType(), Collections.unmodifiableMap(attributes));
+
+        for (Attribute<?, ?> attribute : managedType.getAttributes()) {
+
+            Type<?> type = attribute.isCollection() ?
+                    ((PluralAttribute<?, ?, ?>) attribute).getElementType() :
+                    ((SingularAttribute<?, ?>) attribute).getType();
+
+            boolean managed = type instanceof ManagedType;
+
+            attributes.put(attribute.getName(), new AttributeDescriptor(attribute.getName(), type.getJavaType(),
+                    attribute.getPersistentAttributeType(), attribute.isCollection(), managed,
+                    isNullable(attribute, type.getJavaType())));
+
+            if (managed) snapshot((ManagedType<?>) type, types);
+        }
+    }
+
+    /**
+     * Returns whether the mapping of a singular attribute allows {@code NULL} values. Ids and
+     * primitives never are, other attributes only when they are not annotated with
+     * {@code @Column(nullable = false)} or {@code @Basic(optional = false)}. Mappings in
+     * {@code orm.xml} are not read, as {@link SingularAttribute#isOptional()} is not reported the
+     * same way by all providers.
+     */
+    private static boolean isNullable(Attribute<?, ?> attribute, Class<?> javaType) {
+
+        if (attribute.isCollection() || ((SingularAttribute<?, ?>) attribute).isId() || javaType.isPrimitive()) {
+            return false;
+        }
+
+        Member member = attribute.getJavaMember();
+
+        if (!(member instanceof AnnotatedElement)) return true;
+
+        Column column = ((AnnotatedElement) member).getAnnotation(Column.class);
+        Basic basic = ((AnnotatedElement) member).getAnnotation(Basic.class);
+
+        return (column == null || column.nullable()) && (basic == null || basic.optional());
+    }
+
+    /**
+     * Returns the field with the given name declared by the class or by one of its superclasses.
+     */
+    static Field getFieldFromEntity(Class entity, String fieldName) throws NoSuchFieldException {
+
+        try {
+            return entity.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+
+            if (entity.getSuperclass() == null) {
+                throw e;
+            }
+
+            return getFieldFromEntity(entity.getSuperclass(), fieldName);
+        }
+    }
+
+    static Boolean isClassStringLike(Class javaClass) {
+
+        return javaClass == String.class ||
+                javaClass == Character.class || javaClass == char.class ||
+                javaClass == Character[].class || javaClass == char[].class;
+    }
+
+    static Boolean isClassComparable(Class javaClass) {
+
+        return Comparable.class.isAssignableFrom(javaClass) || javaClass.isPrimitive();
+    }
+
+    /**
+     * Chain of attributes of a dotted path. An unknown path has no attributes.
+     */
+    public static final class AttributePath {
+
+        private final String path;
+        private final List<AttributeDescriptor> attributes;
+        private final boolean toMany;
+
+        private AttributePath(String path, List<AttributeDescriptor> attributes, boolean toMany) {
+            this.path = path;
+            this.attributes = attributes;
+            this.toMany = toMany;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public boolean exists() {
+            return !attributes.isEmpty();
+        }
+
+        public List<AttributeDescriptor> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Returns the last attribute of the path, or {@code null} if the path does not exist.
+         */
+        public AttributeDescriptor getAttribute() {
+            return attributes.isEmpty() ? null : attributes.get(attributes.size() - 1);
+        }
+
+        /**
+         * Returns whether any attribute of the path is a collection, which multiplies the rows of
+         * the joins.
+         */
+        public boolean isToMany() {
+            return toMany;
+        }
+    }
+
+    /**
+     * Attribute of an entity, an embeddable or a related entity. For collections the Java type is
+     * the type of the elements.
+     */
+    public static final class AttributeDescriptor {
+
+        private final String name;
+        private final Class<?> javaType;
+        private final Attribute.PersistentAttributeType persistentType;
+        private final boolean collection;
+        private final boolean managed;
+        private final boolean nullable;
+        private final Set<FilterOperation> filterOperations;
+
+        private AttributeDescriptor(String name, Class<?> javaType, Attribute.PersistentAttributeType persistentType,
+                                    boolean collection, boolean managed, boolean nullable) {
+            this.name = name;
+            this.javaType = javaType;
+            this.persistentType = persistentType;
+            this.collection = collection;
+            this.managed = managed;
+            this.nullable = nullable;
+            this.filterOperations = Collections.unmodifiableSet(filterOperations(javaType, persistentType));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getJavaType() {
+            return javaType;
+        }
+
+        public Attribute.PersistentAttributeType getPersistentType() {
+            return persistentType;
+        }
+
+        public boolean isCollection() {
+            return collection;
+        }
+
+        /**
+         * Returns whether the type of the attribute (or of its elements) is an entity or an
+         * embeddable, which has attributes of its own.
+         */
+        public boolean isManaged() {
+            return managed;
+        }
+
+        /**
+         * Returns whether the mapping of the attribute allows {@code NULL} values. Collections are
+         * empty rather than {@code NULL}.
+         */
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        /**
+         * Returns whether paths through this attribute have to join it.
+         */
+        public boolean isJoined() {
+
+            switch (persistentType) {
+                case ONE_TO_MANY:
+                case MANY_TO_MANY:
+                case ONE_TO_ONE:
+                case MANY_TO_ONE:
+                case EMBEDDED:
+                    return true;
+                default:
+                    return collection;
+            }
+        }
+
+        public boolean isToMany() {
+            return collection;
+        }
+
+        /**
+         * Returns the filter operations that can be applied to the attribute. Filters with other
+         * operations are ignored by {@link JPAUtils}.
+         */
+        public Set<FilterOperation> getFilterOperations() {
+            return filterOperations;
+        }
+
+        public boolean supports(FilterOperation operation) {
+            return filterOperations.contains(operation);
+        }
+
+        private static Set<FilterOperation> filterOperations(Class<?> javaType,
+                                                             Attribute.PersistentAttributeType persistentType) {
+
+            if (persistentType != Attribute.PersistentAttributeType.BASIC) {
+                return EnumSet.noneOf(FilterOperation.class);
+            }
+
+            Set<FilterOperation> operations = EnumSet.of(FilterOperation.EQ, FilterOperation.NEQ, FilterOperation.IN,
+                    FilterOperation.NIN, FilterOperation.ISNULL, FilterOperation.ISNOTNULL);
+
+            if (isClassStringLike(javaType)) {
+                operations.addAll(EnumSet.of(FilterOperation.EQIC, FilterOperation.NEQIC, FilterOperation.INIC,
+                        FilterOperation.NINIC));
+            }
+
+            if (javaType == String.class) {
+                operations.addAll(EnumSet.of(FilterOperation.LIKE, FilterOperation.LIKEIC));
+            }
+
+            if (isClassComparable(javaType)) {
+                operations.addAll(EnumSet.of(FilterOperation.GT, FilterOperation.GTE, FilterOperation.LT,
+                        FilterOperation.LTE));
+            }
+
+            return operations;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
+
+import javax.persistence.Tuple;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Creates entities from the tuples of queries that select only some of their fields. The
+ * constructor and the field setters are looked up once per entity class and list of fields and
+ * bound as method handles, so projecting a row only invokes them.
+ * <p>
+ * Projectors are immutable and cached, up to a limit per entity class, so they can be shared
+ * between threads.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class EntityProjector<T> {
+
+    private static final Logger log = Logger.getLogger(EntityProjector.class.getSimpleName());
+
+    private static final int MAX_CACHED_PROJECTORS = 256;
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<Map<List<String>, EntityProjector<?>>> projectors =
+            new ClassValue<Map<List<String>, EntityProjector<?>>>() {
+
+                @Override
+                protected Map<List<String>, EntityProjector<?>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private final Class<T> entity;
+    private final List<String> fields;
+
+    private final MethodHandle constructor;
+    private final MethodHandle[] setters;
+    private final boolean[] primitives;
+
+    private EntityProjector(Class<T> entity, List<String> fields) {
+
+        log.finest("Creating projector for entity: " + entity.getSimpleName() + " with fields: " + fields);
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        try {
+
+            Constructor<T> c = entity.getDeclaredConstructor();
+            c.setAccessible(true);
+
+            constructor = lookup.unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+
+            throw new AssertionError("Entity '" + entity.getSimpleName() +
+                    "' does not have an accessible no-argument constructor", e);
+        }
+
+        setters = new MethodHandle[fields.size()];
+        primitives = new boolean[fields.size()];
+
+        for (int i = 0; i < fields.size(); i++) {
+
+            try {
+
+                Field f = EntityDescriptor.getFieldFromEntity(entity, fields.get(i));
+                f.setAccessible(true);
+
+                setters[i] = lookup.unreflectSetter(f).asType(SETTER_TYPE);
+                primitives[i] = f.getType().isPrimitive();
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+
+                throw new NoSuchEntityFieldException(e.getMessage(), fields.get(i), entity.getSimpleName());
+            }
+        }
+
+        this.entity = entity;
+        this.fields = fields;
+    }
+
+    /**
+     * Returns the projector that sets the given fields, in the order of the elements of the tuples.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityProjector<T> of(Class<T> entity, List<String> fields) {
+
+        if (entity == null) throw new IllegalArgumentException("The passed entity class cannot be null");
+
+        if (fields == null) throw new IllegalArgumentException("The passed fields cannot be null");
+
+        Map<List<String>, EntityProjector<?>> cached = projectors.get(entity);
+
+        EntityProjector<?> projector = cached.get(fields);
+
+        if (projector != null) return (EntityProjector<T>) projector;
+
+        List<String> key = Collections.unmodifiableList(new ArrayList<>(fields));
+
+        projector = new EntityProjector<>(entity, key);
+
+        if (cached.size() < MAX_CACHED_PROJECTORS) cached.putIfAbsent(key, projector);
+
+        return (EntityProjector<T>) projector;
+    }
+
+    public Class<T> getEntity() {
+        return entity;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T project(Tuple tuple) {
+
+        try {
+
+            Object el = constructor.invokeExact();
+
+            for (int i = 0; i < setters.length; i++) {
+
+                Object value = tuple.get(i);
+
+                if (value == null && primitives[i]) continue;
+
+                setters[i].invokeExact(el, value);
+            }
+
+            return (T) el;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<T> project(List<Tuple> tuples) {
+
+        List<T> entities = new ArrayList<>(tuples.size());
+
+        for (Tuple t : tuples) {
+            entities.add(project(t));
+        }
+
+        return entities;
+    }
+}
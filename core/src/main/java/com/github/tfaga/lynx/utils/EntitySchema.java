@@ -0,0 +1,182 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.exceptions.ConversionException;
+import com.github.tfaga.lynx.exceptions.InvalidEntityFieldException;
+import com.github.tfaga.lynx.exceptions.InvalidFieldValueException;
+import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
+
+import com.github.tfaga.lynx.utils.EntityDescriptor.AttributeDescriptor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Metamodel;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Snapshot of the metamodel of an entity class, used to validate query parameters against the
+ * entity while they are parsed, before an {@code EntityManager} or a connection is acquired. Field
+ * paths, the compatibility of filter operations with the attribute types and the conversion of
+ * filter values are checked with the same rules that {@link JPAUtils} applies when querying.
+ * <p>
+ * The attributes are taken from the {@link EntityDescriptor} of the entity, so the schema holds no
+ * references to the persistence provider. Field paths are resolved through the bounded path cache
+ * of the descriptor, so the paths of requests, which can be arbitrarily long on entities with cyclic
+ * relations, are never collected without a limit. Schemas are cached per metamodel and entity
+ * class and are safe to share between threads.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class EntitySchema {
+
+    private static final Logger log = Logger.getLogger(EntitySchema.class.getSimpleName());
+
+    private static final Map<Metamodel, Map<Class<?>, EntitySchema>> schemas =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Class<?> entity;
+    private final EntityDescriptor descriptor;
+
+    private EntitySchema(Metamodel metamodel, Class<?> entity) {
+
+        log.finest("Creating schema for entity: " + entity.getSimpleName());
+
+        this.entity = entity;
+        this.descriptor = EntityDescriptor.of(metamodel, entity);
+    }
+
+    public static EntitySchema of(EntityManagerFactory emf, Class<?> entity) {
+
+        if (emf == null) throw new IllegalArgumentException("The passed entity manager factory cannot be null");
+
+        return of(emf.getMetamodel(), entity);
+    }
+
+    public static EntitySchema of(Metamodel metamodel, Class<?> entity) {
+
+        if (metamodel == null) throw new IllegalArgumentException("The passed metamodel cannot be null");
+
+        if (entity == null) throw new IllegalArgumentException("The passed entity class cannot be null");
+
+        return schemas.computeIfAbsent(metamodel, m -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entity, e -> new EntitySchema(metamodel, e));
+    }
+
+    public Class<?> getEntity() {
+        return entity;
+    }
+
+    /**
+     * Validates the filters, order and fields of the query parameters against the entity.
+     *
+     * @throws NoSuchEntityFieldException   if a field or a path does not exist on the entity
+     * @throws InvalidEntityFieldException  if a field cannot be used for filtering or ordering
+     * @throws InvalidFieldValueException   if a filter value cannot be converted to the type of its
+     *                                      field or the operation is not supported by the type
+     */
+    public <Q extends QueryParameters> Q validate(Q q) {
+
+        for (QueryFilter f : q.getFilters()) {
+            validateFilter(f);
+        }
+
+        for (QueryOrder o : q.getOrder()) {
+
+            if (o.getField() == null) continue;
+
+            if (resolve(o.getField()).isToMany()) {
+                throw new InvalidEntityFieldException(
+                        "OneToMany and ManyToMany relations are not supported by the order query",
+                        o.getField(), entity.getSimpleName());
+            }
+        }
+
+        for (String f : q.getFields()) {
+
+            if (descriptor.getAttribute(f) == null) throw noSuchField(f);
+        }
+
+        return q;
+    }
+
+    ///// Private helper methods
+
+    private void validateFilter(QueryFilter f) {
+
+        AttributeDescriptor attribute = resolve(f.getField()).getAttribute();
+
+        if (attribute.getPersistentType() != Attribute.PersistentAttributeType.BASIC) {
+            throw new InvalidEntityFieldException("Only basic attributes can be filtered",
+                    f.getField(), entity.getSimpleName());
+        }
+
+        Class<?> type = attribute.getJavaType();
+
+        if (f.getOperation() == null) return;
+
+        if (!attribute.supports(f.getOperation())) throw unsupportedOperation(f, type);
+
+        try {
+
+            switch (f.getOperation()) {
+
+                case IN:
+                case INIC:
+                case NIN:
+                case NINIC:
+                    f.getTypedValues(type);
+                    break;
+                case ISNULL:
+                case ISNOTNULL:
+                    break;
+                default:
+                    if ((f.getValue() != null || f.getDateValue() != null) && f.getTypedValue(type) == null) {
+                        throw unsupportedOperation(f, type);
+                    }
+            }
+        } catch (ConversionException e) {
+
+            throw new InvalidFieldValueException(e.getMessage(), f.getField(), e.getValue());
+        }
+    }
+
+    private EntityDescriptor.AttributePath resolve(String path) {
+
+        if (path == null) throw noSuchField(null);
+
+        EntityDescriptor.AttributePath resolved = descriptor.getPath(path);
+
+        if (!resolved.exists()) throw noSuchField(path);
+
+        return resolved;
+    }
+
+    private NoSuchEntityFieldException noSuchField(String field) {
+
+        String msg = "Field '" + field + "' does not exist on entity '" + entity.getSimpleName() + "'";
+
+        log.finest(msg);
+
+        return new NoSuchEntityFieldException(msg, field, entity.getSimpleName());
+    }
+
+    private InvalidFieldValueException unsupportedOperation(QueryFilter f, Class<?> type) {
+
+        String value = f.getValue() != null ? f.getValue() :
+                f.getDateValue() != null ? f.getDateValue().toInstant().toString() : f.getValues().toString();
+
+        String msg = "Operation '" + f.getOperation() + "' is not supported by field '" + f.getField() +
+                "' of type '" + type.getSimpleName() + "' for value '" + value + "'";
+
+        log.finest(msg);
+
+        return new InvalidFieldValueException(msg, f.getField(), value);
+    }
+}
@@ -3,8 +3,10 @@ package com.github.tfaga.lynx.utils;
 import com.github.tfaga.lynx.beans.CriteriaField;
 import com.github.tfaga.lynx.beans.CriteriaWhereQuery;
 import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryPage;
 import com.github.tfaga.lynx.beans.QueryParameters;
 import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.enums.StreamCleanup;
 import com.github.tfaga.lynx.exceptions.ConversionException;
 import com.github.tfaga.lynx.exceptions.InvalidEntityFieldException;
 import com.github.tfaga.lynx.exceptions.InvalidFieldValueException;
@@ -17,18 +19,26 @@ import javax.persistence.Tuple;
 import javax.persistence.TupleElement;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
-import javax.persistence.metamodel.Attribute;
-import javax.persistence.metamodel.EntityType;
-import javax.persistence.metamodel.Metamodel;
-import javax.persistence.metamodel.SingularAttribute;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Tilen Faganel
@@ -38,6 +48,66 @@ public class JPAUtils {
 
     private static final Logger log = Logger.getLogger(JPAUtils.class.getSimpleName());
 
+    private static final int DEFAULT_TEMPLATE_CACHE_SIZE = 256;
+
+    private static final int DEFAULT_STREAM_BATCH_SIZE = 500;
+
+    private static volatile QueryTemplateCache templateCache = new QueryTemplateCache(DEFAULT_TEMPLATE_CACHE_SIZE);
+
+    private static volatile CountCache countCache;
+
+    private static volatile boolean inListPadding;
+
+    private static volatile boolean toManySubqueries = true;
+
+    private static final AtomicLong executedPageCounts = new AtomicLong();
+
+    private static final AtomicLong skippedPageCounts = new AtomicLong();
+
+    /**
+     * Provides the values of filters and cursors to the criteria queries, either as literals or as
+     * parameters together with the way to obtain their values from later query parameters.
+     */
+    interface ValueBinder {
+
+        Expression<?> value(CriteriaBuilder cb, int filter, Object value, Function<QueryFilter, Object> extractor);
+
+        Predicate in(CriteriaBuilder cb, Expression<?> expression, int filter, List<Object> values,
+                     Function<QueryFilter, List<Object>> extractor);
+
+        List<Expression<?>> values(CriteriaBuilder cb, List<Object> values,
+                                   Function<QueryParameters, List<Object>> extractor);
+    }
+
+    /**
+     * What the criteria query of a template selects: the entities, fields or projections, their
+     * count, or only their ids.
+     */
+    private enum QueryType {
+        RESULTS, COUNT, IDS
+    }
+
+    private static final ValueBinder LITERALS = new ValueBinder() {
+
+        @Override
+        public Expression<?> value(CriteriaBuilder cb, int filter, Object value,
+                                   Function<QueryFilter, Object> extractor) {
+            return cb.literal(value);
+        }
+
+        @Override
+        public Predicate in(CriteriaBuilder cb, Expression<?> expression, int filter, List<Object> values,
+                            Function<QueryFilter, List<Object>> extractor) {
+            return expression.in(values);
+        }
+
+        @Override
+        public List<Expression<?>> values(CriteriaBuilder cb, List<Object> values,
+                                          Function<QueryParameters, List<Object>> extractor) {
+            return values.stream().map(cb::literal).collect(Collectors.toList());
+        }
+    };
+
     public static <T> List<T> queryEntities(EntityManager em, Class<T> entity) {
 
         return queryEntities(em, entity, new QueryParameters());
@@ -52,7 +122,6 @@ public class JPAUtils {
         return queryEntities(em, entity, new QueryParameters(), customFilter);
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> List<T> queryEntities(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter) {
 
         if (em == null || entity == null)
@@ -65,76 +134,187 @@ public class JPAUtils {
 
         log.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q);
 
-        Boolean requiresDistinct = false;
+        List<T> entities = getEntities(em, entity, q, customFilter, false);
 
-        CriteriaBuilder cb = em.getCriteriaBuilder();
+        return q.getBefore() == null ? entities : reverse(entities);
+    }
 
-        CriteriaQuery<?> cq;
+    /**
+     * @since 1.3.0
+     */
+    public static <T> QueryPage<T> queryPage(EntityManager em, Class<T> entity, QueryParameters q) {
 
-        if (q.getFields().isEmpty()) {
+        return queryPage(em, entity, q, null);
+    }
 
-            cq = cb.createQuery(entity);
-        } else {
+    /**
+     * Queries a page of entities together with the number of all entities that match the filters
+     * and whether more entities follow the page. One more entity than the limit is read to tell if
+     * there are more of them, and the count runs on the same entity manager, so within a
+     * transaction both queries see the same data. The page and count queries are built from the
+     * cached templates of their shapes, like the ones of {@link #queryEntities} and
+     * {@link #queryEntitiesCount}.
+     * <p>
+     * The count is skipped when the page proves the total, which is the offset plus the number of
+     * entities when the page is the last one and is either not empty or starts at the first entity.
+     * Pages with cursors always run the count, as their position among all entities is unknown.
+     *
+     * @since 1.3.0
+     */
+    public static <T> QueryPage<T> queryPage(EntityManager em, Class<T> entity, QueryParameters q,
+                                             CriteriaFilter<T> customFilter) {
 
-            cq = cb.createTupleQuery();
-        }
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
 
-        Root<T> r = cq.from(entity);
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null.");
 
-        Predicate wherePredicate = null;
+        log.finest("Querying page of entity: '" + entity.getSimpleName() + "' with parameters: " + q);
 
-        if (!q.getFilters().isEmpty()) {
+        List<T> entities = getEntities(em, entity, q, customFilter, true);
 
-            CriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(cb, r, q);
+        boolean hasMore = hasLimit(q) && entities.size() > q.getLimit();
 
-            requiresDistinct = criteriaWhereQuery.containsToMany();
-            wherePredicate = criteriaWhereQuery.getPredicate();
+        if (hasMore) {
+            entities = new ArrayList<>(entities.subList(0, q.getLimit().intValue()));
         }
 
-        if (customFilter != null) {
+        long offset = q.getOffset() != null && q.getOffset() > -1 ? q.getOffset() : 0;
 
-            wherePredicate = customFilter.createPredicate(
-                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
-        }
+        Long total;
 
-        if (wherePredicate != null) {
-            cq.where(wherePredicate);
-        }
+        if (!hasMore && q.getAfter() == null && q.getBefore() == null && (!entities.isEmpty() || offset == 0)) {
+
+            skippedPageCounts.incrementAndGet();
 
-        if (!q.getOrder().isEmpty()) {
+            total = offset + entities.size();
+        } else {
 
-            List<Order> orders = createOrderQuery(cb, r, q, getEntityIdField(em, entity));
+            executedPageCounts.incrementAndGet();
 
-            cq.orderBy(orders);
+            total = getCount(em, entity, q, customFilter);
         }
 
-        if (q.getFields().isEmpty()) {
+        return new QueryPage<>(q.getBefore() == null ? entities : reverse(entities), total, hasMore);
+    }
 
-            cq.select((Selection) r).distinct(requiresDistinct);
-        } else {
+    /**
+     * Queries only the fields of the query parameters and returns them without creating entities.
+     * Each row is returned as a {@code Map} from the fields to their values, as an {@code Object[]}
+     * with the values in the order of the fields, or as an instance of any other projection class
+     * created with the constructor whose parameters match the fields. The fields can be paths
+     * through embeddables and to-one relations.
+     *
+     * @since 1.3.0
+     */
+    public static <T, R> List<R> queryProjections(EntityManager em, Class<T> entity, QueryParameters q,
+                                                  Class<R> projection) {
+
+        return queryProjections(em, entity, q, projection, null);
+    }
 
-            cq.multiselect(createFieldsSelect(r, q, getEntityIdField(em, entity))).distinct(requiresDistinct);
-        }
+    /**
+     * @since 1.3.0
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, R> List<R> queryProjections(EntityManager em, Class<T> entity, QueryParameters q,
+                                                  Class<R> projection, CriteriaFilter<T> customFilter) {
 
-        TypedQuery<?> tq = em.createQuery(cq);
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
 
-        if (q.getLimit() != null && q.getLimit() > -1) {
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null.");
 
-            tq.setMaxResults(q.getLimit().intValue());
-        }
+        if (projection == null)
+            throw new IllegalArgumentException("The projection cannot be null.");
 
-        if (q.getOffset() != null && q.getOffset() > -1) {
+        if (q.getFields().isEmpty())
+            throw new IllegalArgumentException("The fields of the projection must be set in the query parameters.");
 
-            tq.setFirstResult(q.getOffset().intValue());
-        }
+        log.finest("Querying entity: '" + entity.getSimpleName() + "' as '" + projection.getSimpleName() +
+                "' with parameters: " + q);
 
-        if (q.getFields().isEmpty()) {
+        TypedQuery<?> tq = getQueryTemplate(em, entity, q, customFilter, QueryType.RESULTS, projection).createQuery(em, q);
 
-            return (List<T>) tq.getResultList();
+        setPaging(tq, q);
+
+        List<R> projections;
+
+        if (projection == Map.class) {
+
+            projections = (List<R>) createMapFromTuple((List<Tuple>) tq.getResultList(), getProjectionFields(q));
+        } else if (projection == Object[].class) {
+
+            projections = (List<R>) ((List<Tuple>) tq.getResultList()).stream()
+                    .map(Tuple::toArray).collect(Collectors.toList());
         } else {
 
-            return createEntityFromTuple((List<Tuple>)tq.getResultList(), entity);
+            projections = (List<R>) tq.getResultList();
         }
+
+        return q.getBefore() == null ? projections : reverse(projections);
+    }
+
+    /**
+     * @since 1.3.0
+     */
+    public static <T> Stream<T> streamEntities(EntityManager em, Class<T> entity, QueryParameters q) {
+
+        return streamEntities(em, entity, q, null);
+    }
+
+    /**
+     * @since 1.3.0
+     */
+    public static <T> Stream<T> streamEntities(EntityManager em, Class<T> entity, QueryParameters q,
+                                               CriteriaFilter<T> customFilter) {
+
+        return streamEntities(em, entity, q, customFilter, DEFAULT_STREAM_BATCH_SIZE, StreamCleanup.DETACH);
+    }
+
+    /**
+     * Streams the entities without reading all of them into memory. The results are fetched from
+     * the database in batches of the given size over an open cursor, and after each batch was
+     * processed its entities are detached or the persistence context is cleared, so they do not
+     * accumulate in it. The stream must be closed to release the cursor, which also happens once
+     * all entities were read.
+     *
+     * @since 1.3.0
+     */
+    public static <T> Stream<T> streamEntities(EntityManager em, Class<T> entity, QueryParameters q,
+                                               CriteriaFilter<T> customFilter, int batchSize,
+                                               StreamCleanup cleanup) {
+
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null.");
+
+        if (batchSize < 1)
+            throw new IllegalArgumentException("The batch size must be a positive number.");
+
+        if (cleanup == null)
+            throw new IllegalArgumentException("The stream cleanup cannot be null.");
+
+        if (q.getBefore() != null)
+            throw new IllegalArgumentException("Streams can only continue after a cursor, not before it.");
+
+        log.finest("Streaming entity: '" + entity.getSimpleName() + "' with parameters: " + q);
+
+        TypedQuery<?> tq = getQueryTemplate(em, entity, q, customFilter, QueryType.RESULTS, null).createQuery(em, q);
+
+        setPaging(tq, q);
+
+        QueryCursor cursor = QueryCursor.open(tq, batchSize);
+
+        BatchIterator<T> iterator = new BatchIterator<>(cursor, em, entity, !q.getFields().isEmpty(),
+                batchSize, cleanup);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(cursor::close);
     }
 
     public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity) {
@@ -164,37 +344,234 @@ public class JPAUtils {
 
         log.finest("Querying entity count: '" + entity.getSimpleName() + "' with parameters: " + q);
 
-        Boolean requiresDistinct = false;
+        return getCount(em, entity, q, customFilter);
+    }
 
-        CriteriaBuilder cb = em.getCriteriaBuilder();
+    /**
+     * @since 1.3.0
+     */
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q, long cap) {
 
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        return queryEntitiesCount(em, entity, q, null, cap);
+    }
 
-        Root<T> r = cq.from(entity);
+    /**
+     * Counts the entities up to the given cap. The ids of at most {@code cap + 1} entities are read,
+     * so the cost does not grow with the number of all matching entities. Returns the exact count if
+     * it is not larger than the cap and {@code cap + 1} otherwise, which stands for more than
+     * {@code cap} entities.
+     *
+     * @since 1.3.0
+     */
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q,
+                                              CriteriaFilter<T> customFilter, long cap) {
 
-        Predicate wherePredicate = null;
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
 
-        if (!q.getFilters().isEmpty()) {
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null.");
 
-            CriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(cb, r, q);
+        if (cap < 0)
+            throw new IllegalArgumentException("The cap must not be negative.");
 
-            requiresDistinct = criteriaWhereQuery.containsToMany();
-            wherePredicate = criteriaWhereQuery.getPredicate();
-        }
+        // Caps beyond the maximum number of results cannot limit the query, so the entities are counted
+        if (cap >= Integer.MAX_VALUE) return queryEntitiesCount(em, entity, q, customFilter);
 
-        if (customFilter != null) {
+        log.finest("Querying entity count: '" + entity.getSimpleName() + "' up to " + cap + " with parameters: " + q);
 
-            wherePredicate = customFilter.createPredicate(
-                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
-        }
+        TypedQuery<?> tq = getQueryTemplate(em, entity, q, customFilter, QueryType.IDS, null).createQuery(em, q);
 
-        if (wherePredicate != null) {
-            cq.where(wherePredicate);
+        tq.setMaxResults((int) cap + 1);
+
+        return (long) tq.getResultList().size();
+    }
+
+    /**
+     * @since 1.3.0
+     */
+    public static <T> boolean exists(EntityManager em, Class<T> entity, QueryParameters q) {
+
+        return exists(em, entity, q, null);
+    }
+
+    /**
+     * Returns whether any entity matches the filters, by reading the id of at most one of them.
+     *
+     * @since 1.3.0
+     */
+    public static <T> boolean exists(EntityManager em, Class<T> entity, QueryParameters q,
+                                     CriteriaFilter<T> customFilter) {
+
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null.");
+
+        log.finest("Querying entity existence: '" + entity.getSimpleName() + "' with parameters: " + q);
+
+        TypedQuery<?> tq = getQueryTemplate(em, entity, q, customFilter, QueryType.IDS, null).createQuery(em, q);
+
+        tq.setMaxResults(1);
+
+        return !tq.getResultList().isEmpty();
+    }
+
+    /**
+     * Creates the cursor of an entity that was queried with the given query parameters. Set as the
+     * {@code after} cursor of the same query parameters, it continues with the entities that follow
+     * it, and set as the {@code before} cursor, with the entities that precede it. The cursor holds
+     * the values of the order fields and of the id of the entity, so the database can seek to it
+     * instead of skipping all rows before it as with an offset.
+     *
+     * @since 1.3.0
+     */
+    public static <T> String createCursor(EntityManager em, Class<T> entity, QueryParameters q, T row) {
+
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null.");
+
+        if (row == null)
+            throw new IllegalArgumentException("The row of the cursor cannot be null.");
+
+        KeysetCursor keyset = KeysetCursor.of(EntityDescriptor.of(em.getMetamodel(), entity), q).checkComparable();
+
+        return keyset.encode(keyset.read(row));
+    }
+
+    /**
+     * Returns the cache of query templates, which is shared by all entity manager factories, or
+     * {@code null} if the templates are not cached.
+     */
+    public static QueryTemplateCache getQueryTemplateCache() {
+        return templateCache;
+    }
+
+    /**
+     * Returns the number of count queries that {@link #queryPage} has run.
+     *
+     * @since 1.3.0
+     */
+    public static long getExecutedPageCounts() {
+        return executedPageCounts.get();
+    }
+
+    /**
+     * Returns the number of count queries that {@link #queryPage} has skipped, because the page
+     * proved the total.
+     *
+     * @since 1.3.0
+     */
+    public static long getSkippedPageCounts() {
+        return skippedPageCounts.get();
+    }
+
+    /**
+     * Returns the cache of entity counts, or {@code null} if the counts are not cached, which is the
+     * default.
+     *
+     * @since 1.3.0
+     */
+    public static CountCache getCountCache() {
+        return countCache;
+    }
+
+    /**
+     * Caches the exact entity counts of {@link #queryEntitiesCount} and {@link #queryPage} without
+     * custom filters for the given time, keeping at most the given number of counts of different
+     * entities and filters. The current cache is discarded and a size of zero disables caching.
+     * The counts of an entity are invalidated by {@link #invalidateCountCache}, which
+     * {@link CountCacheListener} calls when entities are persisted, updated or removed. As the
+     * listener is called before the changes are committed, counts may be stale for up to one time
+     * to live after any write.
+     *
+     * @since 1.3.0
+     */
+    public static void setCountCache(int size, long ttl, TimeUnit unit) {
+
+        log.finest("Setting count cache size: " + size + " and time to live: " + ttl + " " + unit);
+
+        if (size < 0) throw new IllegalArgumentException("The passed size must be a positive number");
+
+        if (unit == null) throw new IllegalArgumentException("The time unit cannot be null.");
+
+        countCache = size > 0 ? new CountCache(size, ttl, unit) : null;
+    }
+
+    /**
+     * Removes the cached counts of the entity class and of the entities whose filters join it.
+     *
+     * @since 1.3.0
+     */
+    public static void invalidateCountCache(Class<?> entity) {
+
+        if (entity == null)
+            throw new IllegalArgumentException("The entity cannot be null.");
+
+        CountCache cache = countCache;
+
+        if (cache != null) {
+
+            log.finest("Invalidating count cache of entity: '" + entity.getSimpleName() + "'");
+
+            cache.invalidate(entity);
         }
+    }
+
+    /**
+     * Sets the maximum number of cached query templates. The current cache is discarded and a size
+     * of zero disables caching.
+     */
+    public static void setQueryTemplateCacheSize(int size) {
+
+        log.finest("Setting query template cache size: " + size);
+
+        if (size < 0) throw new IllegalArgumentException("The passed size must be a positive number");
 
-        cq.select(cb.count(r)).distinct(requiresDistinct);
+        templateCache = size > 0 ? new QueryTemplateCache(size) : null;
+    }
+
+    /**
+     * Enables padding of the value lists of IN, NIN, INIC and NINIC filters. The values are sorted,
+     * deduplicated and padded by repeating the last value up to the next power of two, so lists of
+     * different lengths share the same few queries. The results are not affected.
+     */
+    public static void setInListPadding(boolean enabled) {
+
+        log.finest("Setting in list padding: " + enabled);
+
+        inListPadding = enabled;
+    }
 
-        return em.createQuery(cq).getSingleResult();
+    public static boolean isInListPadding() {
+        return inListPadding;
+    }
+
+    /**
+     * Enables rewriting of filters on paths across OneToMany and ManyToMany relations into
+     * correlated {@code EXISTS} subqueries, one per filter, which is the default. The query then no longer joins the
+     * collections, so it neither multiplies the rows nor needs {@code DISTINCT} to remove the
+     * duplicates, which is slow on wide rows and not possible on LOB columns. When disabled, the
+     * collections are joined and the query selects distinct entities. The results are not affected.
+     *
+     * @since 1.3.0
+     */
+    public static void setToManySubqueries(boolean enabled) {
+
+        log.finest("Setting to many subqueries: " + enabled);
+
+        toManySubqueries = enabled;
+    }
+
+    /**
+     * @since 1.3.0
+     */
+    public static boolean isToManySubqueries() {
+        return toManySubqueries;
     }
 
     public static List<Order> createOrderQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
@@ -205,11 +582,13 @@ public class JPAUtils {
 
         List<Order> orders = new ArrayList<>();
 
+        EntityDescriptor descriptor = EntityDescriptor.of(r.getModel());
+
         q.getOrder().stream().filter(qo -> qo.getField() != null).forEach(qo -> {
 
             try {
 
-                CriteriaField field = getCriteriaField(qo.getField(), r);
+                CriteriaField field = getCriteriaField(qo.getField(), r, descriptor);
 
                 if (field.containsToMany()) {
                     throw new InvalidEntityFieldException(
@@ -230,16 +609,22 @@ public class JPAUtils {
             }
         });
 
-        //Add sort by id for correct pagination when field has same values
+        //Add sort by id for correct pagination when field has same values, embedded ids by their attributes
         if (id != null) {
-            orders.add(cb.asc(getCriteriaField(id, r).getPath()));
+
+            List<String> idPaths = descriptor.getIdPaths().stream().filter(p -> p.startsWith(id + "."))
+                    .collect(Collectors.toList());
+
+            for (String idPath : idPaths.isEmpty() ? Collections.singletonList(id) : idPaths) {
+                orders.add(cb.asc(getCriteriaField(idPath, r, descriptor).getPath()));
+            }
         }
 
         return orders;
     }
 
     public static Predicate createWhereQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
-        return createWhereQueryInternal(cb, r, q).getPredicate();
+        return createWhereQueryInternal(cb, r, q, LITERALS, false, null).getPredicate();
     }
 
     public static List<Selection<?>> createFieldsSelect(Root<?> r, QueryParameters q, String idField) {
@@ -268,116 +653,300 @@ public class JPAUtils {
 
     // Temporary methods to not break the public API
 
-    private static CriteriaWhereQuery createWhereQueryInternal(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> getEntities(EntityManager em, Class<T> entity, QueryParameters q,
+                                           CriteriaFilter<T> customFilter, boolean probe) {
+
+        TypedQuery<?> tq = getQueryTemplate(em, entity, q, customFilter, QueryType.RESULTS, null).createQuery(em, q);
+
+        setPaging(tq, q);
+
+        // One more entity than the limit tells whether the page is followed by more of them
+        if (probe && hasLimit(q) && q.getLimit() < Integer.MAX_VALUE) {
+            tq.setMaxResults(q.getLimit().intValue() + 1);
+        }
+
+        if (q.getFields().isEmpty()) {
+
+            return (List<T>) tq.getResultList();
+        } else {
+
+            return createEntityFromTuple((List<Tuple>)tq.getResultList(), entity);
+        }
+    }
+
+    private static <T> Long getCount(EntityManager em, Class<T> entity, QueryParameters q,
+                                     CriteriaFilter<T> customFilter) {
+
+        CountCache cache = countCache;
+
+        if (customFilter != null || cache == null) {
+
+            return (Long) getQueryTemplate(em, entity, q, customFilter, QueryType.COUNT, null).createQuery(em, q)
+                    .getSingleResult();
+        }
+
+        return cache.get(getCountKey(em, entity, q), getCountDependencies(em, entity, q),
+                () -> (Long) getQueryTemplate(em, entity, q, null, QueryType.COUNT, null).createQuery(em, q)
+                        .getSingleResult());
+    }
+
+    /**
+     * Returns the key of the cached count. All filters must match, so their order and repetitions
+     * do not change the count.
+     */
+    private static CacheKey getCountKey(EntityManager em, Class<?> entity, QueryParameters q) {
+
+        Set<Object> filters = new HashSet<>();
+
+        for (QueryFilter f : q.getFilters()) {
+
+            filters.add(Arrays.asList(f.getField(), f.getOperation(), f.getValue(),
+                    f.getDateValue() == null ? null : f.getDateValue().getTime(), new ArrayList<>(f.getValues())));
+        }
+
+        return new CacheKey(em.getEntityManagerFactory(), Arrays.asList(entity, filters));
+    }
+
+    /**
+     * Returns the entity and the types of the relations that the filters join, as changes to any
+     * of them can change the count.
+     */
+    private static Set<Class<?>> getCountDependencies(EntityManager em, Class<?> entity, QueryParameters q) {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getMetamodel(), entity);
+
+        Set<Class<?>> dependencies = new HashSet<>();
+        dependencies.add(entity);
+
+        for (QueryFilter f : q.getFilters()) {
+
+            if (f.getField() == null) continue;
+
+            for (EntityDescriptor.AttributeDescriptor attribute : descriptor.getPath(f.getField()).getAttributes()) {
+
+                if (attribute.isJoined() && attribute.isManaged()) {
+                    dependencies.add(attribute.getJavaType());
+                }
+            }
+        }
+
+        return dependencies;
+    }
+
+    private static boolean hasLimit(QueryParameters q) {
+        return q.getLimit() != null && q.getLimit() > -1;
+    }
+
+    private static void setPaging(TypedQuery<?> tq, QueryParameters q) {
+
+        if (hasLimit(q)) {
+
+            tq.setMaxResults(q.getLimit().intValue());
+        }
+
+        if (q.getOffset() != null && q.getOffset() > -1) {
+
+            tq.setFirstResult(q.getOffset().intValue());
+        }
+    }
+
+    private static List<Selection<?>> createIdSelect(Root<?> r) {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(r.getModel());
+
+        if (descriptor.getIdPaths().isEmpty()) return Collections.singletonList(r);
+
+        return descriptor.getIdPaths().stream().map(id -> (Selection<?>) getCriteriaField(id, r, descriptor).getPath())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Selection<?>> createProjectionSelect(Root<?> r, QueryParameters q) {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(r.getModel());
+
+        return getProjectionFields(q).stream().map(f -> {
+
+            try {
+
+                CriteriaField field = getCriteriaField(f, r, descriptor);
+
+                if (field.containsToMany()) {
+                    throw new InvalidEntityFieldException(
+                            "OneToMany and ManyToMany relations are not supported by projections",
+                            f, r.getJavaType().getSimpleName());
+                }
+
+                return (Selection<?>) field.getPath();
+            } catch (IllegalArgumentException e) {
+
+                throw new NoSuchEntityFieldException(e.getMessage(), f, r.getJavaType().getSimpleName());
+            }
+        }).collect(Collectors.toList());
+    }
+
+    private static List<String> getProjectionFields(QueryParameters q) {
+        return q.getFields().stream().distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Creates the predicate of the filters. Filters on paths across OneToMany and ManyToMany
+     * relations either join the collections into the query or, when the query is given, are each
+     * rewritten into an {@code EXISTS} subquery on the same entity, correlated with the root. Every
+     * filter has a subquery of its own, so the filters can match different elements of a
+     * collection, just like they do when each of them joins the collections into the query.
+     * EclipseLink selects the correlated root in the subquery again, joined to the outer root by
+     * its id, so its subqueries contain one more join than those of Hibernate.
+     */
+    @SuppressWarnings("unchecked")
+    private static CriteriaWhereQuery createWhereQueryInternal(CriteriaBuilder cb, Root<?> r, QueryParameters q,
+                                                               ValueBinder binder, boolean padInLists,
+                                                               AbstractQuery<?> query) {
 
         Predicate predicate = cb.conjunction();
         Boolean containsToMany = false;
 
-        for (QueryFilter f : q.getFilters()) {
+        EntityDescriptor descriptor = EntityDescriptor.of(r.getModel());
+
+        List<QueryFilter> filters = q.getFilters();
+
+        for (int i = 0; i < filters.size(); i++) {
+
+            QueryFilter f = filters.get(i);
 
             Predicate np = null;
 
+            Subquery<Object> subquery = null;
+            Root<Object> subqueryRoot = null;
+
             try {
-                CriteriaField criteriaField = getCriteriaField(f.getField(), r);
 
-                if (criteriaField.containsToMany()) {
+                if (query != null && f.getField() != null && descriptor.getPath(f.getField()).isToMany()) {
+
+                    subquery = query.subquery((Class<Object>) r.getJavaType());
+                    subqueryRoot = subquery.correlate((Root<Object>) r);
+                }
+
+                CriteriaField criteriaField = getCriteriaField(f.getField(), subquery != null ? subqueryRoot : r,
+                        descriptor);
+
+                if (criteriaField.containsToMany() && subquery == null) {
                     containsToMany = true;
                 }
 
                 Path entityField = criteriaField.getPath();
+                Class<?> type = criteriaField.getAttribute().getJavaType();
+
+                if (!criteriaField.getAttribute().supports(f.getOperation())) {
+
+                    // The joins of the subquery alone require the elements, like the joins of the query
+                    if (subquery != null) {
+                        predicate = cb.and(predicate, cb.exists(subquery.select(subqueryRoot)));
+                    }
 
-                if (entityField.getModel() == null || !((Attribute) entityField.getModel()).getPersistentAttributeType()
-                        .equals(Attribute.PersistentAttributeType.BASIC)) {
                     continue;
                 }
 
                 @SuppressWarnings("unchecked")
                 Path<String> stringField = (Path<String>) entityField;
 
+                Object value;
+
                 switch (f.getOperation()) {
 
                     case EQ:
-                        if (f.getValue() != null) {
-                            np = cb.equal(entityField, getValueForPath(entityField, f.getValue()));
+                        value = getTypedValue(type, f);
+
+                        if (value != null) {
+                            np = cb.equal(entityField, binder.value(cb, i, value,
+                                    qf -> getTypedValue(type, qf)));
                         }
                         break;
                     case EQIC:
-                        if (isClassStringLike(entityField.getJavaType()) && f.getValue() != null) {
-                            np = cb.equal(cb.lower(stringField),
-                                    getValueForPath(entityField, f.getValue().toLowerCase()));
+                        if (f.getValue() != null) {
+                            np = cb.equal(cb.lower(stringField), binder.value(cb, i,
+                                    getValue(type, f, f.getValue().toLowerCase()),
+                                    qf -> getValue(type, qf, qf.getValue().toLowerCase())));
                         }
                         break;
                     case NEQ:
-                        if (f.getValue() != null) {
-                            np = cb.notEqual(entityField, getValueForPath(entityField, f.getValue()));
+                        value = getTypedValue(type, f);
+
+                        if (value != null) {
+                            np = cb.notEqual(entityField, binder.value(cb, i, value,
+                                    qf -> getTypedValue(type, qf)));
                         }
                         break;
                     case NEQIC:
-                        if (isClassStringLike(entityField.getJavaType()) && f.getValue() != null) {
-                            np = cb.notEqual(cb.lower(stringField),
-                                    getValueForPath(entityField, f.getValue().toLowerCase()));
+                        if (f.getValue() != null) {
+                            np = cb.notEqual(cb.lower(stringField), binder.value(cb, i,
+                                    getValue(type, f, f.getValue().toLowerCase()),
+                                    qf -> getValue(type, qf, qf.getValue().toLowerCase())));
                         }
                         break;
                     case LIKE:
-                        if (entityField.getJavaType() == String.class && f.getValue() != null) {
-                            np = cb.like(stringField, f.getValue());
+                        if (f.getValue() != null) {
+                            np = cb.like(stringField, stringValue(cb, binder, i, f.getValue(),
+                                    QueryFilter::getValue));
                         }
                         break;
                     case LIKEIC:
-                        if (entityField.getJavaType() == String.class && f.getValue() != null) {
-                            np = cb.like(cb.lower(stringField), f.getValue().toLowerCase());
+                        if (f.getValue() != null) {
+                            np = cb.like(cb.lower(stringField), stringValue(cb, binder, i,
+                                    f.getValue().toLowerCase(), qf -> qf.getValue().toLowerCase()));
                         }
                         break;
                     case GT:
-                        if (isClassComparable(entityField.getJavaType()) && f.getValue() != null) {
-                            np = cb.greaterThan(entityField, (Comparable) getValueForPath(stringField, f.getValue()));
+                        value = getTypedValue(type, f);
+
+                        if (value != null) {
+                            np = cb.greaterThan(entityField, comparableValue(cb, binder, i, value,
+                                    qf -> getTypedValue(type, qf)));
                         }
                         break;
                     case GTE:
-                        if (isClassComparable(entityField.getJavaType()) && f.getValue() != null) {
-                            np = cb.greaterThanOrEqualTo(entityField, (Comparable) getValueForPath(stringField, f.getValue()));
+                        value = getTypedValue(type, f);
+
+                        if (value != null) {
+                            np = cb.greaterThanOrEqualTo(entityField, comparableValue(cb, binder, i, value,
+                                    qf -> getTypedValue(type, qf)));
                         }
                         break;
                     case LT:
-                        if (isClassComparable(entityField.getJavaType()) && f.getValue() != null) {
-                            np = cb.lessThan(entityField, (Comparable) getValueForPath(stringField, f.getValue()));
+                        value = getTypedValue(type, f);
+
+                        if (value != null) {
+                            np = cb.lessThan(entityField, comparableValue(cb, binder, i, value,
+                                    qf -> getTypedValue(type, qf)));
                         }
                         break;
                     case LTE:
-                        if (isClassComparable(entityField.getJavaType()) && f.getValue() != null) {
-                            np = cb.lessThanOrEqualTo(entityField, (Comparable) getValueForPath(stringField, f.getValue()));
+                        value = getTypedValue(type, f);
+
+                        if (value != null) {
+                            np = cb.lessThanOrEqualTo(entityField, comparableValue(cb, binder, i, value,
+                                    qf -> getTypedValue(type, qf)));
                         }
                         break;
                     case IN:
-                        np = entityField.in(f.getValues().stream()
-                                .filter(Objects::nonNull)
-                                .map(s -> getValueForPath(entityField, s)).collect(Collectors
-                                        .toList()));
+                        np = binder.in(cb, entityField, i,
+                                getInValues(f, getTypedValues(type, f), padInLists),
+                                qf -> getInValues(qf, getTypedValues(type, qf), padInLists));
                         break;
                     case INIC:
-                        if (isClassStringLike(entityField.getJavaType())) {
-                            np = cb.lower(stringField)
-                                    .in(f.getValues().stream()
-                                            .filter(Objects::nonNull)
-                                            .map(String::toLowerCase)
-                                            .map(s ->  getValueForPath(entityField, s))
-                                            .collect(Collectors.toList()));
-                        }
+                        np = binder.in(cb, cb.lower(stringField), i,
+                                getInValues(f, getLowerCaseValues(type, f), padInLists),
+                                qf -> getInValues(qf, getLowerCaseValues(type, qf), padInLists));
                         break;
                     case NIN:
-                        np = cb.not(entityField.in(f.getValues().stream()
-                                .filter(Objects::nonNull)
-                                .map(s -> getValueForPath(entityField, s)).collect(Collectors.toList())));
+                        np = cb.not(binder.in(cb, entityField, i,
+                                getInValues(f, getTypedValues(type, f), padInLists),
+                                qf -> getInValues(qf, getTypedValues(type, qf), padInLists)));
                         break;
                     case NINIC:
-                        if (isClassStringLike(entityField.getJavaType())) {
-                            np = cb.not(cb.lower(stringField)
-                                    .in(f.getValues().stream()
-                                            .filter(Objects::nonNull)
-                                            .map(String::toLowerCase)
-                                            .map(s ->  getValueForPath(entityField, s))
-                                            .collect(Collectors.toList())));
-                        }
+                        np = cb.not(binder.in(cb, cb.lower(stringField), i,
+                                getInValues(f, getLowerCaseValues(type, f), padInLists),
+                                qf -> getInValues(qf, getLowerCaseValues(type, qf), padInLists)));
                         break;
                     case ISNULL:
                         np = cb.isNull(entityField);
@@ -391,7 +960,11 @@ public class JPAUtils {
                 throw new NoSuchEntityFieldException(e.getMessage(), f.getField(), r.getJavaType().getSimpleName());
             }
 
-            if (np != null) {
+            // The subquery is added even without a predicate, as its joins alone require the elements
+            if (subquery != null) {
+                predicate = cb.and(predicate, cb.exists(np == null ? subquery.select(subqueryRoot) :
+                        subquery.select(subqueryRoot).where(np)));
+            } else if (np != null) {
                 predicate = cb.and(predicate, np);
             }
         }
@@ -399,136 +972,513 @@ public class JPAUtils {
         return new CriteriaWhereQuery(predicate, containsToMany);
     }
 
-    ///// Private helper methods
+    private static <T> QueryTemplate getQueryTemplate(EntityManager em, Class<T> entity, QueryParameters q,
+                                                      CriteriaFilter<T> customFilter, QueryType type,
+                                                      Class<?> projection) {
 
-    private static <T> List<T> createEntityFromTuple(List<Tuple> tuples, Class<T> entity) {
+        if (q.getAfter() != null && q.getBefore() != null)
+            throw new IllegalArgumentException("Only one of the after and before cursors can be set.");
 
-        List<T> entities = new ArrayList<>();
+        QueryTemplateCache cache = templateCache;
+        boolean padInLists = inListPadding;
+        boolean subqueries = toManySubqueries;
 
-        for (Tuple t : tuples) {
+        // Custom filters can capture any state, so their queries are never shared
+        if (customFilter != null || cache == null) {
+            return createQueryTemplate(em, entity, q, customFilter, type, projection, padInLists, subqueries);
+        }
 
-            T el;
+        return cache.get(getQueryShape(em, entity, q, type, projection, padInLists, subqueries),
+                s -> createQueryTemplate(em, entity, q, null, type, projection, padInLists, subqueries));
+    }
 
-            try {
-                el = entity.getConstructor().newInstance();
-            } catch (InstantiationException | IllegalAccessException |
-                    NoSuchMethodException | InvocationTargetException e) {
+    @SuppressWarnings("unchecked")
+    private static <T> QueryTemplate createQueryTemplate(EntityManager em, Class<T> entity, QueryParameters q,
+                                                         CriteriaFilter<T> customFilter, QueryType type,
+                                                         Class<?> projection, boolean padInLists,
+                                                         boolean subqueries) {
 
-                throw new AssertionError();
-            }
+        QueryTemplate.Builder builder = new QueryTemplate.Builder();
 
-            for (TupleElement<?> te : t.getElements()) {
+        Boolean requiresDistinct = false;
 
-                Object o = t.get(te);
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        CriteriaQuery<?> cq;
+
+        if (type == QueryType.COUNT) {
+
+            cq = cb.createQuery(Long.class);
+        } else if (type == QueryType.IDS) {
+
+            cq = cb.createTupleQuery();
+        } else if (projection != null && projection != Map.class && projection != Object[].class) {
+
+            cq = cb.createQuery(projection);
+        } else if (q.getFields().isEmpty()) {
 
-                try {
-                    Field f = getFieldFromEntity(entity, te.getAlias());
-                    f.setAccessible(true);
-                    f.set(el, o);
-                } catch (NoSuchFieldException | IllegalAccessException e1) {
+            cq = cb.createQuery(entity);
+        } else {
+
+            cq = cb.createTupleQuery();
+        }
+
+        Root<T> r = cq.from(entity);
 
-                    throw new NoSuchEntityFieldException(e1.getMessage(), te.getAlias(), entity.getSimpleName());
+        Predicate wherePredicate = null;
+
+        if (!q.getFilters().isEmpty()) {
+
+            CriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(cb, r, q, builder, padInLists,
+                    subqueries ? cq : null);
+
+            requiresDistinct = criteriaWhereQuery.containsToMany();
+            wherePredicate = criteriaWhereQuery.getPredicate();
+        }
+
+        if (customFilter != null) {
+
+            wherePredicate = customFilter.createPredicate(
+                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
+        }
+
+        if (wherePredicate != null) {
+            cq.where(wherePredicate);
+        }
+
+        if (type == QueryType.COUNT) {
+
+            ((CriteriaQuery<Long>) cq).select(requiresDistinct ? cb.countDistinct(r) : cb.count(r));
+
+            return builder.build(cq);
+        }
+
+        if (type == QueryType.IDS) {
+
+            cq.multiselect(createIdSelect(r)).distinct(requiresDistinct);
+
+            return builder.build(cq);
+        }
+
+        if (q.getAfter() != null || q.getBefore() != null) {
+
+            KeysetCursor keyset = KeysetCursor.of(EntityDescriptor.of(r.getModel()), q).checkComparable();
+
+            Predicate keysetPredicate = createKeysetPredicate(cb, r, q, keyset, builder);
+
+            cq.where(wherePredicate == null ? keysetPredicate : cb.and(wherePredicate, keysetPredicate));
+            cq.orderBy(createKeysetOrder(cb, r, keyset, q.getBefore() != null));
+        } else if (!q.getOrder().isEmpty()) {
+
+            cq.orderBy(createKeysetOrder(cb, r, KeysetCursor.of(EntityDescriptor.of(r.getModel()), q), false));
+        }
+
+        if (projection != null && projection != Map.class && projection != Object[].class) {
+
+            List<Selection<?>> selections = createProjectionSelect(r, q);
+
+            ((CriteriaQuery<Object>) cq).select(cb.construct((Class<Object>) projection,
+                    selections.toArray(new Selection<?>[selections.size()]))).distinct(requiresDistinct);
+        } else if (projection != null) {
+
+            cq.multiselect(createProjectionSelect(r, q)).distinct(requiresDistinct);
+        } else if (q.getFields().isEmpty()) {
+
+            ((CriteriaQuery<T>) cq).select(r).distinct(requiresDistinct);
+        } else {
+
+            cq.multiselect(createFieldsSelect(r, q, getEntityIdField(r))).distinct(requiresDistinct);
+        }
+
+        return builder.build(cq);
+    }
+
+    /**
+     * Returns the key of the query template for the query parameters. The criteria query depends on
+     * which filters carry values and how many, but not on the values themselves.
+     */
+    private static CacheKey getQueryShape(EntityManager em, Class<?> entity, QueryParameters q, QueryType type,
+                                        Class<?> projection, boolean padInLists, boolean subqueries) {
+
+        List<Object> filters = new ArrayList<>(q.getFilters().size());
+
+        for (QueryFilter f : q.getFilters()) {
+
+            int values = 0;
+
+            if (padInLists) {
+
+                values = getInListBucket(f);
+            } else {
+
+                for (String v : f.getValues()) {
+                    if (v != null) values++;
                 }
             }
 
-            entities.add(el);
+            filters.add(Arrays.asList(f.getField(), f.getOperation(), f.getValue() != null,
+                    f.getDateValue() != null, values));
+        }
+
+        if (type != QueryType.RESULTS) {
+            return new CacheKey(em.getEntityManagerFactory(), Arrays.asList(entity, type, padInLists, subqueries,
+                    filters));
+        }
+
+        List<Object> order = new ArrayList<>(q.getOrder().size());
+
+        q.getOrder().forEach(o -> order.add(Arrays.asList(o.getField(), o.getOrder())));
+
+        return new CacheKey(em.getEntityManagerFactory(), Arrays.asList(entity, type, padInLists, subqueries,
+                filters, order, new ArrayList<>(q.getFields()), projection == null ? entity : projection,
+                q.getAfter() != null, q.getBefore() != null));
+    }
+
+    /**
+     * Creates the predicate that seeks past the row of the cursor in the order of the keys, as the
+     * expansion of the row value comparison {@code (k1, k2, k3) > (v1, v2, v3)} into
+     * {@code k1 >= v1 and (k1 > v1 or (k1 = v1 and (k2 > v2 or (k2 = v2 and k3 > v3))))}, with the
+     * comparison reversed for descending keys and for the before cursor. The redundant bound on the
+     * first key lets the database use its index for a range scan.
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate createKeysetPredicate(CriteriaBuilder cb, Root<?> r, QueryParameters q,
+                                                   KeysetCursor keyset, ValueBinder binder) {
+
+        boolean before = q.getBefore() != null;
+        String parameter = before ? QueryStringBuilder.BEFORE_DELIMITER : QueryStringBuilder.AFTER_DELIMITER;
+
+        List<Expression<?>> values = binder.values(cb, keyset.decode(before ? q.getBefore() : q.getAfter(), parameter),
+                qp -> keyset.decode(before ? qp.getBefore() : qp.getAfter(), parameter));
+
+        EntityDescriptor descriptor = EntityDescriptor.of(r.getModel());
+
+        List<KeysetCursor.Key> keys = keyset.getKeys();
+        List<Expression<Comparable>> paths = new ArrayList<>(keys.size());
+
+        for (KeysetCursor.Key key : keys) {
+            paths.add((Expression<Comparable>) getCriteriaField(key.getPath(), r, descriptor).getPath());
+        }
+
+        int last = keys.size() - 1;
+
+        Predicate predicate = compareKey(cb, paths.get(last), values.get(last), keys.get(last), before, false);
+
+        for (int i = last - 1; i >= 0; i--) {
+
+            predicate = cb.or(compareKey(cb, paths.get(i), values.get(i), keys.get(i), before, false),
+                    cb.and(cb.equal(paths.get(i), values.get(i)), predicate));
         }
 
-        return entities;
+        if (last == 0) return predicate;
+
+        return cb.and(compareKey(cb, paths.get(0), values.get(0), keys.get(0), before, true), predicate);
     }
 
     @SuppressWarnings("unchecked")
-    private static String getEntityIdField(EntityManager em, Class entity) {
+    private static Predicate compareKey(CriteriaBuilder cb, Expression<Comparable> path, Expression<?> value,
+                                        KeysetCursor.Key key, boolean before, boolean inclusive) {
+
+        Expression<Comparable> comparable = (Expression<Comparable>) value;
+
+        if ((key.getDirection() == OrderDirection.ASC) != before) {
+
+            return inclusive ? cb.greaterThanOrEqualTo(path, comparable) : cb.greaterThan(path, comparable);
+        } else {
+
+            return inclusive ? cb.lessThanOrEqualTo(path, comparable) : cb.lessThan(path, comparable);
+        }
+    }
+
+    /**
+     * Orders by the keys, in reverse for the before cursor, so the rows closest to the cursor are
+     * read first. Their order is restored after they are read.
+     */
+    private static List<Order> createKeysetOrder(CriteriaBuilder cb, Root<?> r, KeysetCursor keyset,
+                                                 boolean before) {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(r.getModel());
+
+        List<Order> orders = new ArrayList<>();
+
+        for (KeysetCursor.Key key : keyset.getKeys()) {
+
+            Expression<?> path = getCriteriaField(key.getPath(), r, descriptor).getPath();
+
+            orders.add((key.getDirection() == OrderDirection.ASC) != before ? cb.asc(path) : cb.desc(path));
+        }
+
+        return orders;
+    }
+
+    ///// Private helper methods
+
+    private static <T> List<T> reverse(List<T> list) {
 
-        String idProperty = "";
+        List<T> reversed = new ArrayList<>(list);
 
-        Metamodel metamodel = em.getMetamodel();
-        EntityType e = metamodel.entity(entity);
-        Set<SingularAttribute> singularAttributes = e.getSingularAttributes();
+        Collections.reverse(reversed);
 
-        for (SingularAttribute singularAttribute : singularAttributes) {
+        return reversed;
+    }
+
+    private static <T> List<T> createEntityFromTuple(List<Tuple> tuples, Class<T> entity) {
+
+        if (tuples.isEmpty()) return new ArrayList<>();
+
+        List<String> fields = tuples.get(0).getElements().stream()
+                .map(TupleElement::getAlias).collect(Collectors.toList());
+
+        return EntityProjector.of(entity, fields).project(tuples);
+    }
+
+    private static List<Map<String, Object>> createMapFromTuple(List<Tuple> tuples, List<String> fields) {
 
-            if (singularAttribute.isId()) {
+        List<Map<String, Object>> maps = new ArrayList<>(tuples.size());
 
-                idProperty = singularAttribute.getName();
-                break;
+        for (Tuple t : tuples) {
+
+            Map<String, Object> map = new LinkedHashMap<>();
+
+            for (int i = 0; i < fields.size(); i++) {
+                map.put(fields.get(i), t.get(i));
             }
+
+            maps.add(map);
         }
 
-        return idProperty;
+        return maps;
     }
 
-    private static Field getFieldFromEntity(Class entity, String fieldName) throws
-            NoSuchFieldException {
+    /**
+     * Iterates the rows of a cursor as entities and cleans up each batch of them when the next
+     * entity is requested, that is after the batch was processed by the stream.
+     */
+    private static final class BatchIterator<T> implements Iterator<T> {
+
+        private final QueryCursor cursor;
+        private final EntityManager em;
+        private final Class<T> entity;
+        private final boolean projected;
+        private final int batchSize;
+        private final StreamCleanup cleanup;
+
+        private final List<Object> batch = new ArrayList<>();
+        private EntityProjector<T> projector;
+        private int processed;
+
+        private BatchIterator(QueryCursor cursor, EntityManager em, Class<T> entity, boolean projected,
+                              int batchSize, StreamCleanup cleanup) {
+            this.cursor = cursor;
+            this.em = em;
+            this.entity = entity;
+            this.projected = projected;
+            this.batchSize = batchSize;
+            this.cleanup = cleanup;
+        }
 
-        try {
-            return entity.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
+        @Override
+        public boolean hasNext() {
+
+            if (cursor.hasNext()) return true;
+
+            cleanUp();
+            cursor.close();
 
-            if (entity.getSuperclass() == null) {
-                throw e;
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+
+            if (processed == batchSize) cleanUp();
+
+            Object row = cursor.next();
+
+            processed++;
+
+            // Projected entities are created by the projector and are never managed
+            if (projected) {
+
+                Tuple tuple = (Tuple) row;
+
+                if (projector == null) {
+                    projector = EntityProjector.of(entity, tuple.getElements().stream()
+                            .map(TupleElement::getAlias).collect(Collectors.toList()));
+                }
+
+                return projector.project(tuple);
             }
 
-            return getFieldFromEntity(entity.getSuperclass(), fieldName);
+            if (cleanup == StreamCleanup.DETACH) batch.add(row);
+
+            return (T) row;
         }
+
+        private void cleanUp() {
+
+            if (processed == 0) return;
+
+            if (cleanup == StreamCleanup.DETACH) {
+
+                for (Object o : batch) {
+                    em.detach(o);
+                }
+
+                batch.clear();
+            } else if (cleanup == StreamCleanup.CLEAR && !projected) {
+
+                em.clear();
+            }
+
+            processed = 0;
+        }
+    }
+
+    private static String getEntityIdField(Root<?> r) {
+
+        String idProperty = EntityDescriptor.of(r.getModel()).getIdAttribute();
+
+        return idProperty == null ? "" : idProperty;
     }
 
-    private static Object getValueForPath(Path path, String value) {
+    private static Object getValue(Class<?> type, QueryFilter filter, String value) {
 
         try {
-            return ConversionHelper.toTargetObject(path.getModel().getBindableJavaType(), value);
+            return ConversionHelper.toTargetObject(type, value);
         } catch (ConversionException e) {
 
-            throw new InvalidFieldValueException(e.getMessage(), path.getAlias(), value);
+            throw new InvalidFieldValueException(e.getMessage(), filter.getField(), value);
         }
     }
 
-    private static CriteriaField getCriteriaField(String fieldName, Root<?> r) {
+    private static Object getTypedValue(Class<?> type, QueryFilter filter) {
+
+        try {
+            return filter.getTypedValue(type);
+        } catch (ConversionException e) {
 
-        if (fieldName == null) fieldName = "";
+            throw new InvalidFieldValueException(e.getMessage(), filter.getField(), e.getValue());
+        }
+    }
 
-        String fields[] = fieldName.split("\\.");
+    private static List<Object> getTypedValues(Class<?> type, QueryFilter filter) {
+
+        try {
+            return filter.getTypedValues(type);
+        } catch (ConversionException e) {
+
+            throw new InvalidFieldValueException(e.getMessage(), filter.getField(), e.getValue());
+        }
+    }
+
+    private static List<Object> getLowerCaseValues(Class<?> type, QueryFilter filter) {
+
+        return filter.getValues().stream()
+                .filter(Objects::nonNull)
+                .map(String::toLowerCase)
+                .map(s -> getValue(type, filter, s))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the values of an in list filter sorted, deduplicated and padded to the size of its
+     * bucket by repeating the last value, if padding is enabled.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> getInValues(QueryFilter filter, List<Object> values, boolean padInLists) {
+
+        if (!padInLists || values.isEmpty()) return values;
+
+        int bucket = getInListBucket(filter);
+
+        List<Object> padded = new ArrayList<>(bucket);
+
+        padded.addAll(new LinkedHashSet<>(values));
+
+        if (padded.stream().allMatch(v -> v instanceof Comparable)) {
+            padded.sort(null);
+        }
+
+        Object last = padded.get(padded.size() - 1);
+
+        while (padded.size() < bucket) {
+            padded.add(last);
+        }
+
+        return padded;
+    }
+
+    /**
+     * Returns the number of distinct values of a filter rounded up to the next power of two. The
+     * values converted to the type of the field can only be fewer, so they always fit the bucket.
+     */
+    private static int getInListBucket(QueryFilter filter) {
+
+        int distinct = (int) filter.getValues().stream().filter(Objects::nonNull).distinct().count();
+
+        return distinct <= 1 ? distinct : Integer.highestOneBit(distinct - 1) << 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<String> stringValue(CriteriaBuilder cb, ValueBinder binder, int filter, String value,
+                                                  Function<QueryFilter, Object> extractor) {
+
+        return (Expression<String>) binder.value(cb, filter, value, extractor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<Comparable> comparableValue(CriteriaBuilder cb, ValueBinder binder, int filter,
+                                                          Object value, Function<QueryFilter, Object> extractor) {
+
+        return (Expression<Comparable>) binder.value(cb, filter, value, extractor);
+    }
+
+    private static CriteriaField getCriteriaField(String fieldName, Root<?> r, EntityDescriptor descriptor) {
+
+        EntityDescriptor.AttributePath attributePath = descriptor.getPath(fieldName == null ? "" : fieldName);
+
+        if (!attributePath.exists()) {
+            throw new IllegalArgumentException("Unable to locate attribute path [" + fieldName + "] on entity [" +
+                    descriptor.getEntity().getSimpleName() + "]");
+        }
 
         From from = r;
         Path path = r;
-        Boolean containsToMany = false;
 
-        for (String field : fields) {
+        for (EntityDescriptor.AttributeDescriptor attribute : attributePath.getAttributes()) {
 
-            path = from.get(field);
+            if (attribute.isJoined()) {
 
-            if (path.getModel() == null &&
-                    (path.getJavaType().equals(List.class) || path.getJavaType().equals(Set.class))) {
-
-                containsToMany = true;
-                from = from.join(field);
+                from = getJoin(from, attribute);
+                path = from;
             } else {
 
-                switch (((Attribute) path.getModel()).getPersistentAttributeType()) {
-                    case ONE_TO_MANY:
-                    case MANY_TO_MANY:
-                        containsToMany = true;
-                    case ONE_TO_ONE:
-                    case MANY_TO_ONE:
-                    case EMBEDDED:
-                        from = from.join(field);
-                        break;
-                }
+                path = from.get(attribute.getName());
             }
         }
 
-        return new CriteriaField(path, containsToMany);
+        return new CriteriaField(path, attributePath.isToMany(), attributePath.getAttribute());
     }
 
-    private static Boolean isClassStringLike(Class javaClass) {
+    /**
+     * Returns the inner join of the attribute that was already made from the given root or join, so
+     * paths of the filters, order and fields that cross the same to-one relation or embeddable share
+     * a single join. Collections are joined again for every path, so each filter on a collection can
+     * match a different element of it.
+     */
+    private static From getJoin(From<?, ?> from, EntityDescriptor.AttributeDescriptor attribute) {
 
-        return javaClass == String.class ||
-                javaClass == Character.class || javaClass == char.class ||
-                javaClass == Character[].class || javaClass == char[].class;
-    }
+        if (attribute.isToMany()) return from.join(attribute.getName());
 
-    private static Boolean isClassComparable(Class javaClass) {
+        for (Join<?, ?> join : from.getJoins()) {
+
+            if (join.getJoinType() == JoinType.INNER && join.getAttribute().getName().equals(attribute.getName())) {
+                return join;
+            }
+        }
 
-        return Comparable.class.isAssignableFrom(javaClass) || javaClass.isPrimitive();
+        return from.join(attribute.getName());
     }
 }
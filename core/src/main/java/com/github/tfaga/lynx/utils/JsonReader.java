@@ -0,0 +1,353 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.logging.Logger;
+
+/**
+ * Minimal pull reader for JSON documents. Values are read straight from the underlying reader
+ * through a small buffer, without building a tree of the document. Scalars are returned as their
+ * textual value, so numbers keep the exact form in which they were written.
+ * <p>
+ * Elements of an object or an array are iterated by calling {@link #hasNext()} exactly once before
+ * reading each of them.
+ * <p>
+ * When a maximum length is given, reading fails as soon as more characters than that are read
+ * from the underlying reader, which also bounds the length of every string and skipped value.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class JsonReader {
+
+    private static final Logger log = Logger.getLogger(JsonReader.class.getSimpleName());
+
+    private static final int MAX_DEPTH = 32;
+
+    private final Reader reader;
+
+    private final Integer maxLength;
+
+    private final char[] buffer = new char[1024];
+    private int position;
+    private int limit;
+    private long consumed;
+    private long read;
+
+    private final boolean[] first = new boolean[MAX_DEPTH];
+    private int depth;
+
+    JsonReader(Reader reader, Integer maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    boolean isEmpty() throws IOException {
+
+        return peek() == -1;
+    }
+
+    void beginObject() throws IOException {
+
+        begin('{');
+    }
+
+    void endObject() throws IOException {
+
+        end('}');
+    }
+
+    void beginArray() throws IOException {
+
+        begin('[');
+    }
+
+    void endArray() throws IOException {
+
+        end(']');
+    }
+
+    boolean hasNext() throws IOException {
+
+        int c = peek();
+
+        if (c == '}' || c == ']') return false;
+
+        if (first[depth - 1]) {
+
+            first[depth - 1] = false;
+        } else {
+
+            expect(',');
+        }
+
+        return true;
+    }
+
+    String nextName() throws IOException {
+
+        if (peek() != '"') throw syntaxError("Expected a property name");
+
+        String name = readString();
+
+        expect(':');
+
+        return name;
+    }
+
+    /**
+     * Reads a string, number, boolean or null value and returns it as text, or {@code null} for a
+     * JSON null.
+     */
+    String nextValue() throws IOException {
+
+        int c = peek();
+
+        if (c == '"') return readString();
+
+        if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+
+        if (c == 't') return readLiteral("true");
+        if (c == 'f') return readLiteral("false");
+
+        if (c == 'n') {
+
+            readLiteral("null");
+
+            return null;
+        }
+
+        throw syntaxError("Expected a value");
+    }
+
+    void skipValue() throws IOException {
+
+        int c = peek();
+
+        if (c == '{') {
+
+            beginObject();
+
+            while (hasNext()) {
+
+                nextName();
+                skipValue();
+            }
+
+            endObject();
+        } else if (c == '[') {
+
+            beginArray();
+
+            while (hasNext()) {
+                skipValue();
+            }
+
+            endArray();
+        } else {
+
+            nextValue();
+        }
+    }
+
+    void endDocument() throws IOException {
+
+        if (peek() != -1) throw syntaxError("Unexpected content after the end of the document");
+    }
+
+    QueryFormatException syntaxError(String message) {
+
+        String msg = "Search body is malformed at character " + consumed + ": " + message;
+
+        log.finest(msg);
+
+        return new QueryFormatException(msg, null, QueryFormatError.MALFORMED);
+    }
+
+    ///// Private helper methods
+
+    private void begin(char c) throws IOException {
+
+        expect(c);
+
+        if (depth == MAX_DEPTH) throw syntaxError("The document is nested too deeply");
+
+        first[depth++] = true;
+    }
+
+    private void end(char c) throws IOException {
+
+        expect(c);
+
+        depth--;
+    }
+
+    private void expect(char c) throws IOException {
+
+        if (peek() != c) throw syntaxError("Expected '" + c + "'");
+
+        read();
+    }
+
+    /**
+     * Returns the next character that is not whitespace without consuming it, or -1 at the end.
+     */
+    private int peek() throws IOException {
+
+        while (true) {
+
+            if (position == limit && !fill()) return -1;
+
+            char c = buffer[position];
+
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return c;
+
+            position++;
+            consumed++;
+        }
+    }
+
+    private int read() throws IOException {
+
+        if (position == limit && !fill()) return -1;
+
+        consumed++;
+
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+
+        int count = reader.read(buffer, 0, buffer.length);
+
+        if (count <= 0) return false;
+
+        read += count;
+
+        if (maxLength != null && read > maxLength) {
+
+            String msg = "Search body exceeds the maximum length of " + maxLength + " characters";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, null, QueryFormatError.LIMIT_EXCEEDED);
+        }
+
+        position = 0;
+        limit = count;
+
+        return true;
+    }
+
+    private String readString() throws IOException {
+
+        read();
+
+        StringBuilder sb = new StringBuilder();
+
+        while (true) {
+
+            int c = read();
+
+            if (c == -1) throw syntaxError("Unterminated string");
+
+            if (c == '"') return sb.toString();
+
+            if (c < 0x20) throw syntaxError("Unescaped control character in a string");
+
+            if (c == '\\') {
+
+                c = read();
+
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append((char) c);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        sb.append(readUnicodeEscape());
+                        break;
+                    default:
+                        throw syntaxError("Invalid escape sequence in a string");
+                }
+            } else {
+
+                sb.append((char) c);
+            }
+        }
+    }
+
+    private char readUnicodeEscape() throws IOException {
+
+        int value = 0;
+
+        for (int i = 0; i < 4; i++) {
+
+            int digit = Character.digit(read(), 16);
+
+            if (digit == -1) throw syntaxError("Invalid unicode escape sequence in a string");
+
+            value = (value << 4) + digit;
+        }
+
+        return (char) value;
+    }
+
+    private String readNumber() throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+
+        while (true) {
+
+            if (position == limit && !fill()) break;
+
+            char c = buffer[position];
+
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') break;
+
+            sb.append(c);
+
+            position++;
+            consumed++;
+        }
+
+        String number = sb.toString();
+
+        try {
+            Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number '" + number + "'");
+        }
+
+        return number;
+    }
+
+    private String readLiteral(String literal) throws IOException {
+
+        for (int i = 0; i < literal.length(); i++) {
+
+            if (read() != literal.charAt(i)) throw syntaxError("Expected '" + literal + "'");
+        }
+
+        return literal;
+    }
+}
@@ -0,0 +1,271 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.exceptions.ConversionException;
+import com.github.tfaga.lynx.exceptions.InvalidEntityFieldException;
+import com.github.tfaga.lynx.exceptions.InvalidFieldValueException;
+import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
+import com.github.tfaga.lynx.helper.ConversionHelper;
+
+import javax.persistence.metamodel.Attribute;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keys of the keyset pagination of a query and the opaque cursors that hold their values for a row.
+ * The keys are the order fields of the query parameters followed by the id paths of the entity, so
+ * together they identify a row and totally order the results. Queries are ordered by them whether
+ * they have a cursor or not, so the first page is in the same order as the following ones.
+ * <p>
+ * Cursors require keys whose mapping does not allow {@code NULL}, which no comparison of the seek
+ * predicate would match, so the rows with {@code NULL} values would be skipped.
+ * <p>
+ * A cursor is the URL safe Base64 encoding of a version byte, a hash of the key paths and
+ * directions and the values of the keys as strings. The hash rejects cursors that were created for
+ * a different order.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class KeysetCursor {
+
+    private static final byte VERSION = 1;
+
+    private final Class<?> entity;
+    private final List<Key> keys;
+    private final int hash;
+
+    private KeysetCursor(Class<?> entity, List<Key> keys) {
+
+        int hash = 1;
+
+        for (Key key : keys) {
+            hash = 31 * (31 * hash + key.path.hashCode()) + key.direction.ordinal();
+        }
+
+        this.entity = entity;
+        this.keys = keys;
+        this.hash = hash;
+    }
+
+    static KeysetCursor of(EntityDescriptor descriptor, QueryParameters q) {
+
+        String entity = descriptor.getEntity().getSimpleName();
+
+        List<Key> keys = new ArrayList<>();
+        Set<String> paths = new HashSet<>();
+
+        for (QueryOrder o : q.getOrder()) {
+
+            if (o.getField() == null || !paths.add(o.getField())) continue;
+
+            EntityDescriptor.AttributePath path = descriptor.getPath(o.getField());
+
+            if (!path.exists()) {
+                throw new NoSuchEntityFieldException("Unable to locate attribute path [" + o.getField() +
+                        "] on entity [" + entity + "]", o.getField(), entity);
+            }
+
+            if (path.isToMany()) {
+                throw new InvalidEntityFieldException(
+                        "OneToMany and ManyToMany relations are not supported by the order query",
+                        o.getField(), entity);
+            }
+
+            keys.add(new Key(o.getField(), o.getOrder() == OrderDirection.DESC ? OrderDirection.DESC :
+                    OrderDirection.ASC, path.getAttribute(), !descriptor.getIdPaths().contains(o.getField()) &&
+                    path.getAttribute().isNullable()));
+        }
+
+        for (String id : descriptor.getIdPaths()) {
+
+            if (paths.add(id)) {
+                keys.add(new Key(id, OrderDirection.ASC, descriptor.getPath(id).getAttribute(), false));
+            }
+        }
+
+        return new KeysetCursor(descriptor.getEntity(), Collections.unmodifiableList(keys));
+    }
+
+    List<Key> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Checks that the values of all keys can be compared and written to cursors, which is not
+     * required for only ordering by them.
+     */
+    KeysetCursor checkComparable() {
+
+        for (Key key : keys) {
+
+            if (key.attribute.getPersistentType() != Attribute.PersistentAttributeType.BASIC ||
+                    !EntityDescriptor.isClassComparable(key.attribute.getJavaType())) {
+                throw new InvalidEntityFieldException("Only comparable fields are supported by keyset pagination",
+                        key.path, entity.getSimpleName());
+            }
+
+            if (key.nullable) {
+                throw new InvalidEntityFieldException("Keyset pagination requires fields that cannot be NULL",
+                        key.path, entity.getSimpleName());
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Reads the values of the keys from an entity, calling the getters where they exist, so lazy
+     * relations are loaded.
+     */
+    List<Object> read(Object row) {
+
+        List<Object> values = new ArrayList<>(keys.size());
+
+        for (Key key : keys) {
+
+            Object value = row;
+
+            for (String name : key.path.split("\\.")) {
+                value = value == null ? null : getProperty(value, name);
+            }
+
+            if (value == null) {
+                throw new InvalidEntityFieldException("Keyset pagination requires values for all order fields",
+                        key.path, entity.getSimpleName());
+            }
+
+            values.add(value);
+        }
+
+        return values;
+    }
+
+    String encode(List<Object> values) {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+
+            out.writeByte(VERSION);
+            out.writeInt(hash);
+
+            for (int i = 0; i < keys.size(); i++) {
+                out.writeUTF(ConversionHelper.toSourceString(keys.get(i).attribute.getJavaType(), values.get(i)));
+            }
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes the values of the keys from a cursor, reporting invalid cursors under the name of the
+     * query parameter that carried them.
+     */
+    List<Object> decode(String cursor, String parameter) {
+
+        try {
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    Base64.getUrlDecoder().decode(cursor)));
+
+            if (in.readByte() != VERSION || in.readInt() != hash) {
+                throw new InvalidFieldValueException("The cursor does not match the order of the query",
+                        parameter, cursor);
+            }
+
+            List<Object> values = new ArrayList<>(keys.size());
+
+            for (Key key : keys) {
+                values.add(ConversionHelper.toTargetObject(key.attribute.getJavaType(), in.readUTF()));
+            }
+
+            if (in.available() > 0) {
+                throw new InvalidFieldValueException("The cursor does not match the order of the query",
+                        parameter, cursor);
+            }
+
+            return values;
+        } catch (IllegalArgumentException | IOException e) {
+
+            throw new InvalidFieldValueException("The cursor is malformed", parameter, cursor);
+        } catch (ConversionException e) {
+
+            throw new InvalidFieldValueException(e.getMessage(), parameter, cursor);
+        }
+    }
+
+    ///// Private helper methods
+
+    private Object getProperty(Object bean, String name) {
+
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+        try {
+
+            for (String prefix : new String[]{"get", "is"}) {
+
+                try {
+                    return bean.getClass().getMethod(prefix + suffix).invoke(bean);
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+
+            Field f = EntityDescriptor.getFieldFromEntity(bean.getClass(), name);
+            f.setAccessible(true);
+
+            return f.get(bean);
+        } catch (NoSuchFieldException e) {
+
+            throw new NoSuchEntityFieldException(e.getMessage(), name, entity.getSimpleName());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Order field or id path of the keyset with its direction, attribute and whether its mapping
+     * allows {@code NULL} values.
+     */
+    static final class Key {
+
+        private final String path;
+        private final OrderDirection direction;
+        private final EntityDescriptor.AttributeDescriptor attribute;
+        private final boolean nullable;
+
+        private Key(String path, OrderDirection direction, EntityDescriptor.AttributeDescriptor attribute,
+                    boolean nullable) {
+            this.path = path;
+            this.direction = direction;
+            this.attribute = attribute;
+            this.nullable = nullable;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        OrderDirection getDirection() {
+            return direction;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.tfaga.lynx.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Size bounded, least recently used map with counters of its hits, misses and evictions, which
+ * the caches of query parameters, query templates and counts are built on. The map is safe for
+ * use by multiple threads. Values of missing keys are loaded outside of the lock, so concurrent
+ * misses for the same key may load it more than once, and a value is not stored when entries were
+ * removed while it was loaded, as it may have been loaded from the removed data. Entries with
+ * stale keys, such as those of a closed entity manager factory, are removed on every miss.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class LruCache<K, V> {
+
+    private final int maxSize;
+
+    private final Map<K, V> entries;
+
+    private final Predicate<? super K> stale;
+
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    LruCache(int maxSize) {
+        this(maxSize, key -> false);
+    }
+
+    LruCache(int maxSize, Predicate<? super K> stale) {
+
+        if (maxSize < 1) throw new IllegalArgumentException("The cache size must be a positive number");
+
+        this.maxSize = maxSize;
+        this.stale = stale;
+
+        entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+
+                if (size() <= LruCache.this.maxSize) return false;
+
+                evictions.incrementAndGet();
+
+                return true;
+            }
+        };
+    }
+
+    V get(K key, Function<? super K, ? extends V> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Returns the value of the key, loading it if it is missing or no longer valid.
+     */
+    V get(K key, Function<? super K, ? extends V> loader, Predicate<? super V> valid) {
+
+        long start;
+
+        synchronized (entries) {
+
+            V value = entries.get(key);
+
+            start = generation;
+
+            if (value != null && valid.test(value)) {
+
+                hits.incrementAndGet();
+
+                return value;
+            }
+
+            if (value != null) {
+                entries.remove(key);
+            }
+
+            entries.keySet().removeIf(stale);
+        }
+
+        misses.incrementAndGet();
+
+        V value = loader.apply(key);
+
+        synchronized (entries) {
+
+            if (generation == start) {
+                entries.put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes the entries whose values match the filter and returns how many were removed.
+     */
+    int removeIf(Predicate<? super V> filter) {
+
+        synchronized (entries) {
+
+            generation++;
+
+            int size = entries.size();
+
+            entries.values().removeIf(filter);
+
+            return size - entries.size();
+        }
+    }
+
+    void clear() {
+
+        synchronized (entries) {
+
+            generation++;
+
+            entries.clear();
+        }
+    }
+
+    int getSize() {
+
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+}
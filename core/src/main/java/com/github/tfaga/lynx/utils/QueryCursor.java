@@ -0,0 +1,199 @@
+package com.github.tfaga.lynx.utils;
+
+import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Forward only iterator over the results of a query that does not read all of them at once. JPA
+ * 2.1 has no streaming API, so the scrolling support of the provider is used when it is known:
+ * Hibernate streams over scrollable results and EclipseLink iterates a scrollable cursor. The
+ * providers are only accessed reflectively, as they are not dependencies of this library. With
+ * other providers the results are read in pages of the fetch size.
+ * <p>
+ * The cursor must be closed to release the underlying result set.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class QueryCursor implements Iterator<Object>, AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(QueryCursor.class.getSimpleName());
+
+    private static final String HIBERNATE_QUERY = "org.hibernate.query.Query";
+    private static final String HIBERNATE_FETCH_SIZE = "org.hibernate.fetchSize";
+
+    private static final String ECLIPSELINK_QUERY = "org.eclipse.persistence.jpa.JpaQuery";
+    private static final String ECLIPSELINK_FETCH_SIZE = "eclipselink.jdbc.fetch-size";
+    private static final String ECLIPSELINK_SCROLLABLE_CURSOR = "eclipselink.cursor.scrollable";
+    private static final String ECLIPSELINK_RESULT_SET_TYPE = "eclipselink.cursor.scrollable.result-set-type";
+
+    private final Iterator<?> iterator;
+    private final AutoCloseable closeable;
+
+    private boolean closed;
+
+    private QueryCursor(Iterator<?> iterator, AutoCloseable closeable) {
+        this.iterator = iterator;
+        this.closeable = closeable;
+    }
+
+    /**
+     * Executes the query, which must already have its parameters, maximum results and first result
+     * set.
+     */
+    static QueryCursor open(TypedQuery<?> tq, int fetchSize) {
+
+        Object hibernateQuery = unwrap(tq, HIBERNATE_QUERY);
+
+        if (hibernateQuery != null) {
+
+            log.finest("Streaming results with Hibernate scrollable results");
+
+            tq.setHint(HIBERNATE_FETCH_SIZE, fetchSize);
+
+            Stream<?> stream = (Stream<?>) invoke(hibernateQuery, "stream");
+
+            return new QueryCursor(stream.iterator(), stream::close);
+        }
+
+        if (unwrap(tq, ECLIPSELINK_QUERY) != null) {
+
+            log.finest("Streaming results with an EclipseLink scrollable cursor");
+
+            tq.setHint(ECLIPSELINK_FETCH_SIZE, fetchSize);
+            tq.setHint(ECLIPSELINK_SCROLLABLE_CURSOR, true);
+            tq.setHint(ECLIPSELINK_RESULT_SET_TYPE, "ForwardOnly");
+
+            Object cursor = tq.getSingleResult();
+
+            return new QueryCursor((Iterator<?>) cursor, () -> invoke(cursor, "close"));
+        }
+
+        log.finest("Streaming results in pages of " + fetchSize);
+
+        return new QueryCursor(new PageIterator(tq, fetchSize), () -> {});
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && iterator.hasNext();
+    }
+
+    @Override
+    public Object next() {
+
+        if (closed) throw new NoSuchElementException("The cursor is closed");
+
+        return iterator.next();
+    }
+
+    @Override
+    public void close() {
+
+        if (closed) return;
+
+        closed = true;
+
+        try {
+            closeable.close();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    ///// Private helper methods
+
+    private static Object unwrap(TypedQuery<?> tq, String className) {
+
+        Class<?> type;
+
+        try {
+            type = Class.forName(className, false, tq.getClass().getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+
+        try {
+            return tq.unwrap(type);
+        } catch (PersistenceException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Object target, String methodName) {
+
+        try {
+
+            Method method = target.getClass().getMethod(methodName);
+            method.setAccessible(true);
+
+            return method.invoke(target);
+        } catch (InvocationTargetException e) {
+
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+
+            throw new PersistenceException(e.getCause());
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+
+            throw new PersistenceException("The persistence provider does not support " + methodName, e);
+        }
+    }
+
+    /**
+     * Reads the results in pages within the maximum results and first result of the query.
+     */
+    private static final class PageIterator implements Iterator<Object> {
+
+        private final TypedQuery<?> tq;
+        private final int pageSize;
+        private final int firstResult;
+        private final int maxResults;
+
+        private List<?> page;
+        private int index;
+        private int read;
+
+        private PageIterator(TypedQuery<?> tq, int pageSize) {
+            this.tq = tq;
+            this.pageSize = pageSize;
+            this.firstResult = tq.getFirstResult();
+            this.maxResults = tq.getMaxResults();
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (page != null && index < page.size()) return true;
+
+            if (page != null && page.size() < pageSize) return false;
+
+            int size = Math.min(pageSize, maxResults - read);
+
+            if (size <= 0) return false;
+
+            page = tq.setFirstResult(firstResult + read).setMaxResults(size).getResultList();
+            index = 0;
+
+            return !page.isEmpty();
+        }
+
+        @Override
+        public Object next() {
+
+            if (!hasNext()) throw new NoSuchElementException();
+
+            read++;
+
+            return page.get(index++);
+        }
+    }
+}
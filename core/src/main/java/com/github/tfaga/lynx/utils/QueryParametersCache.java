@@ -0,0 +1,51 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
+
+import java.util.function.Function;
+
+/**
+ * Size bounded, least recently used cache of parsed query strings. The cache is safe for use by
+ * multiple threads and hands out the same immutable query parameters to all of them. Parsing of a
+ * missing entry happens outside of the lock, so concurrent misses for the same query may parse it
+ * more than once.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryParametersCache {
+
+    private final LruCache<String, ImmutableQueryParameters> entries;
+
+    QueryParametersCache(int maxSize) {
+        entries = new LruCache<>(maxSize);
+    }
+
+    ImmutableQueryParameters get(String query, Function<String, ImmutableQueryParameters> parser) {
+        return entries.get(query, parser);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int getSize() {
+        return entries.getSize();
+    }
+
+    public int getMaxSize() {
+        return entries.getMaxSize();
+    }
+
+    public long getHits() {
+        return entries.getHits();
+    }
+
+    public long getMisses() {
+        return entries.getMisses();
+    }
+
+    public long getEvictions() {
+        return entries.getEvictions();
+    }
+}
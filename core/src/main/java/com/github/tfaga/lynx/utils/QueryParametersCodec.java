@@ -0,0 +1,550 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary encoding of {@link QueryParameters}, meant for storing parsed queries in
+ * distributed session state, passing them between threads or persisting them as saved searches.
+ * <p>
+ * Lengths, counts and numbers are written as variable length integers, filter operations and order
+ * directions as their ordinals and every distinct field name is written only once to a dictionary
+ * that the order, fields and filters refer to by index. The layout of version 2 is:
+ * <pre>
+ * version       byte
+ * flags         byte (1 = limit, 2 = offset, 4 = after, 8 = before)
+ * limit         zigzag varlong, if present
+ * offset        zigzag varlong, if present
+ * after         string, if present
+ * before        string, if present
+ * dictionary    varint count, followed by the field names
+ * order         varint count, followed by pairs of field reference and direction
+ * fields        varint count, followed by field references
+ * filters       varint count, followed by the filters
+ * </pre>
+ * A filter is a field reference, an operation, a byte of flags (1 = value, 2 = date value, 4 = list
+ * values), followed by the present values. Field references, operations and directions are stored
+ * incremented by one, so zero can stand for {@code null}. Strings are a varint UTF-8 length followed
+ * by the bytes. The length of list values is incremented by one as well, so a zero length stands for
+ * a {@code null} element.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class QueryParametersCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final int FLAG_LIMIT = 1;
+    private static final int FLAG_OFFSET = 2;
+    private static final int FLAG_AFTER = 4;
+    private static final int FLAG_BEFORE = 8;
+
+    private static final int FLAG_VALUE = 1;
+    private static final int FLAG_DATE_VALUE = 2;
+    private static final int FLAG_VALUES = 4;
+
+    private static final FilterOperation[] OPERATIONS = FilterOperation.values();
+    private static final OrderDirection[] DIRECTIONS = OrderDirection.values();
+
+    private QueryParametersCodec() {
+    }
+
+    /**
+     * Encodes the query parameters into a new buffer of the exact encoded size, ready to be read.
+     */
+    public static ByteBuffer encode(QueryParameters params) {
+
+        Map<String, Integer> dictionary = buildDictionary(params);
+
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(params, dictionary));
+
+        write(params, dictionary, buffer);
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * Encodes the query parameters at the current position of the buffer, advancing it past the
+     * encoded bytes.
+     *
+     * @throws BufferOverflowException if the buffer does not have enough space remaining
+     */
+    public static void encode(QueryParameters params, ByteBuffer buffer) {
+
+        Map<String, Integer> dictionary = buildDictionary(params);
+
+        if (encodedSize(params, dictionary) > buffer.remaining()) throw new BufferOverflowException();
+
+        write(params, dictionary, buffer);
+    }
+
+    public static int encodedSize(QueryParameters params) {
+
+        return encodedSize(params, buildDictionary(params));
+    }
+
+    /**
+     * Decodes query parameters from the current position of the buffer, advancing it past the
+     * encoded bytes.
+     *
+     * @throws IllegalArgumentException if the bytes are not valid encoded query parameters
+     */
+    public static QueryParameters decode(ByteBuffer buffer) {
+
+        try {
+
+            int version = buffer.get();
+
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported query parameters encoding version: " + version);
+            }
+
+            QueryParameters params = new QueryParameters();
+
+            int flags = buffer.get();
+
+            params.setLimit((flags & FLAG_LIMIT) != 0 ? readVarLong(buffer) : null);
+            params.setOffset((flags & FLAG_OFFSET) != 0 ? readVarLong(buffer) : null);
+            params.setAfter((flags & FLAG_AFTER) != 0 ? readString(buffer) : null);
+            params.setBefore((flags & FLAG_BEFORE) != 0 ? readString(buffer) : null);
+
+            String[] dictionary = new String[readSize(buffer)];
+
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer);
+            }
+
+            int orderCount = readSize(buffer);
+
+            for (int i = 0; i < orderCount; i++) {
+
+                QueryOrder o = new QueryOrder();
+                o.setField(readField(buffer, dictionary));
+                o.setOrder(readConstant(buffer, DIRECTIONS));
+
+                params.getOrder().add(o);
+            }
+
+            int fieldCount = readSize(buffer);
+
+            for (int i = 0; i < fieldCount; i++) {
+                params.getFields().add(readField(buffer, dictionary));
+            }
+
+            int filterCount = readSize(buffer);
+
+            for (int i = 0; i < filterCount; i++) {
+
+                QueryFilter f = new QueryFilter(readField(buffer, dictionary), readConstant(buffer, OPERATIONS));
+
+                int filterFlags = buffer.get();
+
+                if ((filterFlags & FLAG_VALUE) != 0) f.setValue(readString(buffer));
+                if ((filterFlags & FLAG_DATE_VALUE) != 0) f.setDateValue(new Date(readVarLong(buffer)));
+
+                if ((filterFlags & FLAG_VALUES) != 0) {
+
+                    int valueCount = readSize(buffer);
+
+                    for (int j = 0; j < valueCount; j++) {
+                        f.getValues().add(readValue(buffer));
+                    }
+                }
+
+                params.getFilters().add(f);
+            }
+
+            return params;
+        } catch (BufferUnderflowException e) {
+
+            throw new IllegalArgumentException("The encoded query parameters are truncated", e);
+        }
+    }
+
+    ///// Private helper methods
+
+    private static Map<String, Integer> buildDictionary(QueryParameters params) {
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+        for (QueryOrder o : params.getOrder()) {
+            addField(dictionary, o.getField());
+        }
+
+        for (String field : params.getFields()) {
+            addField(dictionary, field);
+        }
+
+        for (QueryFilter f : params.getFilters()) {
+            addField(dictionary, f.getField());
+        }
+
+        return dictionary;
+    }
+
+    private static void addField(Map<String, Integer> dictionary, String field) {
+
+        if (field != null) dictionary.putIfAbsent(field, dictionary.size());
+    }
+
+    private static int encodedSize(QueryParameters params, Map<String, Integer> dictionary) {
+
+        int size = 2;
+
+        if (params.getLimit() != null) size += varLongSize(params.getLimit());
+        if (params.getOffset() != null) size += varLongSize(params.getOffset());
+        if (params.getAfter() != null) size += stringSize(params.getAfter());
+        if (params.getBefore() != null) size += stringSize(params.getBefore());
+
+        size += varIntSize(dictionary.size());
+
+        for (String field : dictionary.keySet()) {
+            size += stringSize(field);
+        }
+
+        size += varIntSize(params.getOrder().size());
+
+        for (QueryOrder o : params.getOrder()) {
+            size += fieldSize(dictionary, o.getField()) + 1;
+        }
+
+        size += varIntSize(params.getFields().size());
+
+        for (String field : params.getFields()) {
+            size += fieldSize(dictionary, field);
+        }
+
+        size += varIntSize(params.getFilters().size());
+
+        for (QueryFilter f : params.getFilters()) {
+
+            size += fieldSize(dictionary, f.getField()) + 2;
+
+            if (f.getValue() != null) size += stringSize(f.getValue());
+            if (f.getDateValue() != null) size += varLongSize(f.getDateValue().getTime());
+
+            if (!f.getValues().isEmpty()) {
+
+                size += varIntSize(f.getValues().size());
+
+                for (String value : f.getValues()) {
+                    size += valueSize(value);
+                }
+            }
+        }
+
+        return size;
+    }
+
+    private static void write(QueryParameters params, Map<String, Integer> dictionary, ByteBuffer buffer) {
+
+        buffer.put(VERSION);
+        buffer.put((byte) ((params.getLimit() != null ? FLAG_LIMIT : 0) |
+                (params.getOffset() != null ? FLAG_OFFSET : 0) |
+                (params.getAfter() != null ? FLAG_AFTER : 0) |
+                (params.getBefore() != null ? FLAG_BEFORE : 0)));
+
+        if (params.getLimit() != null) writeVarLong(buffer, params.getLimit());
+        if (params.getOffset() != null) writeVarLong(buffer, params.getOffset());
+        if (params.getAfter() != null) writeString(buffer, params.getAfter());
+        if (params.getBefore() != null) writeString(buffer, params.getBefore());
+
+        writeVarInt(buffer, dictionary.size());
+
+        for (String field : dictionary.keySet()) {
+            writeString(buffer, field);
+        }
+
+        writeVarInt(buffer, params.getOrder().size());
+
+        for (QueryOrder o : params.getOrder()) {
+
+            writeField(buffer, dictionary, o.getField());
+            buffer.put((byte) (o.getOrder() == null ? 0 : o.getOrder().ordinal() + 1));
+        }
+
+        writeVarInt(buffer, params.getFields().size());
+
+        for (String field : params.getFields()) {
+            writeField(buffer, dictionary, field);
+        }
+
+        writeVarInt(buffer, params.getFilters().size());
+
+        for (QueryFilter f : params.getFilters()) {
+
+            writeField(buffer, dictionary, f.getField());
+            buffer.put((byte) (f.getOperation() == null ? 0 : f.getOperation().ordinal() + 1));
+
+            Date dateValue = f.getDateValue();
+
+            buffer.put((byte) ((f.getValue() != null ? FLAG_VALUE : 0) |
+                    (dateValue != null ? FLAG_DATE_VALUE : 0) |
+                    (!f.getValues().isEmpty() ? FLAG_VALUES : 0)));
+
+            if (f.getValue() != null) writeString(buffer, f.getValue());
+            if (dateValue != null) writeVarLong(buffer, dateValue.getTime());
+
+            if (!f.getValues().isEmpty()) {
+
+                writeVarInt(buffer, f.getValues().size());
+
+                for (String value : f.getValues()) {
+                    writeValue(buffer, value);
+                }
+            }
+        }
+    }
+
+    private static int fieldSize(Map<String, Integer> dictionary, String field) {
+
+        return varIntSize(field == null ? 0 : dictionary.get(field) + 1);
+    }
+
+    private static void writeField(ByteBuffer buffer, Map<String, Integer> dictionary, String field) {
+
+        writeVarInt(buffer, field == null ? 0 : dictionary.get(field) + 1);
+    }
+
+    private static String readField(ByteBuffer buffer, String[] dictionary) {
+
+        int index = readCount(buffer);
+
+        if (index == 0) return null;
+
+        if (index > dictionary.length) {
+            throw new IllegalArgumentException("Field reference is out of bounds: " + index);
+        }
+
+        return dictionary[index - 1];
+    }
+
+    private static <T> T readConstant(ByteBuffer buffer, T[] constants) {
+
+        int ordinal = buffer.get() & 0xFF;
+
+        if (ordinal == 0) return null;
+
+        if (ordinal > constants.length) {
+            throw new IllegalArgumentException("Constant ordinal is out of bounds: " + (ordinal - 1));
+        }
+
+        return constants[ordinal - 1];
+    }
+
+    private static int stringSize(String value) {
+
+        int length = utf8Length(value);
+
+        return varIntSize(length) + length;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+
+        return readString(buffer, readSize(buffer));
+    }
+
+    private static int valueSize(String value) {
+
+        if (value == null) return 1;
+
+        int length = utf8Length(value);
+
+        return varIntSize(length + 1) + length;
+    }
+
+    private static void writeValue(ByteBuffer buffer, String value) {
+
+        if (value == null) {
+
+            writeVarInt(buffer, 0);
+
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        writeVarInt(buffer, bytes.length + 1);
+        buffer.put(bytes);
+    }
+
+    private static String readValue(ByteBuffer buffer) {
+
+        int length = readCount(buffer);
+
+        if (length == 0) return null;
+
+        if (length - 1 > buffer.remaining()) throw new BufferUnderflowException();
+
+        return readString(buffer, length - 1);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+
+        if (buffer.hasArray()) {
+
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+
+            buffer.position(buffer.position() + length);
+
+            return value;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Number of bytes {@link String#getBytes(java.nio.charset.Charset)} produces with UTF-8, where an
+     * unpaired surrogate is replaced by a single byte.
+     */
+    private static int utf8Length(String value) {
+
+        int length = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+                    Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    private static int varIntSize(int value) {
+
+        int size = 1;
+
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+    private static int varLongSize(long value) {
+
+        value = (value << 1) ^ (value >> 63);
+
+        int size = 1;
+
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+
+        // Zigzag encoded, so negative numbers stay short as well
+        value = (value << 1) ^ (value >> 63);
+
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+
+            byte b = buffer.get();
+
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+
+                if (value < 0) throw new IllegalArgumentException("Malformed variable length integer");
+
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    /**
+     * Reads a count or length of elements that take at least a byte each, so that corrupted input
+     * cannot cause allocations larger than the buffer itself.
+     */
+    private static int readSize(ByteBuffer buffer) {
+
+        int size = readCount(buffer);
+
+        if (size > buffer.remaining()) throw new BufferUnderflowException();
+
+        return size;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+
+            byte b = buffer.get();
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) return (value >>> 1) ^ -(value & 1);
+        }
+
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+}
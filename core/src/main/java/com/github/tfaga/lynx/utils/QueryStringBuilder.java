@@ -1,29 +1,15 @@
 package com.github.tfaga.lynx.utils;
 
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
 import com.github.tfaga.lynx.beans.QueryFilter;
 import com.github.tfaga.lynx.beans.QueryOrder;
 import com.github.tfaga.lynx.beans.QueryParameters;
-import com.github.tfaga.lynx.enums.FilterOperation;
-import com.github.tfaga.lynx.enums.OrderDirection;
-import com.github.tfaga.lynx.enums.QueryFormatError;
-import com.github.tfaga.lynx.exceptions.QueryFormatException;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * @author Tilen Faganel
@@ -40,6 +26,9 @@ public class QueryStringBuilder {
     public static final String OFFSET_DELIMITER = "offset";
     public static final String OFFSET_DELIMITER_ALT = "skip";
 
+    public static final String AFTER_DELIMITER = "after";
+    public static final String BEFORE_DELIMITER = "before";
+
     public static final String ORDER_DELIMITER = "order";
     public static final String ORDER_DELIMITER_ALT = "sort";
 
@@ -50,6 +39,10 @@ public class QueryStringBuilder {
     public static final String FILTER_DELIMITER_ALT = "where";
 
     private String query;
+    private boolean encoded;
+
+    private Map<String, List<String>> parameters;
+    private Map<String, String[]> parameterMap;
 
     private Boolean paginationEnabled = true;
     private Boolean filtersEnabled = true;
@@ -60,24 +53,34 @@ public class QueryStringBuilder {
     private Long defaultLimit;
     private Long defaultOffset;
 
+    private Integer maxQueryLength;
+    private Integer maxFilters;
+    private Integer maxFilterValues;
+    private Integer maxOrder;
+    private Integer maxFields;
+
     private Predicate<QueryFilter> filterPredicate;
     private Predicate<QueryOrder> orderPredicate;
     private Predicate<String> fieldPredicate;
 
+    private EntitySchema schema;
+
     public QueryStringBuilder uri(URI uri) {
 
         log.finest("Setting uri object: " + uri);
 
         if (uri == null) throw new IllegalArgumentException("The passed URI cannot be null");
 
-        query = uri.getRawQuery();
-
-        return this;
+        return query(uri.getRawQuery());
     }
 
     public QueryStringBuilder uriEncoded(String uri) {
 
-        return uri(decodeUrl(uri));
+        uri(uri);
+
+        encoded = true;
+
+        return this;
     }
 
     public QueryStringBuilder uri(String uri) {
@@ -94,31 +97,54 @@ public class QueryStringBuilder {
 
         if (idxFragment == -1) {
 
-            query = uri.substring(idxQuery + 1);
-
-            return this;
+            return query(uri.substring(idxQuery + 1));
         }
 
         if (idxFragment < idxQuery) {
 
-            query = "";
-
-            return this;
+            return query("");
         }
 
-        query = uri.substring(idxQuery + 1, idxFragment);
-
-        return this;
+        return query(uri.substring(idxQuery + 1, idxFragment));
     }
 
     public QueryStringBuilder queryEncoded(String queryString) {
 
-        return query(decodeUrl(queryString));
+        query(queryString);
+
+        encoded = true;
+
+        return this;
     }
 
     public QueryStringBuilder query(String queryString) {
 
         query = queryString;
+        encoded = false;
+        parameters = null;
+        parameterMap = null;
+
+        return this;
+    }
+
+    public QueryStringBuilder parameters(Map<String, List<String>> parameters) {
+
+        log.finest("Setting query parameters: " + parameters);
+
+        query = null;
+        this.parameters = parameters;
+        parameterMap = null;
+
+        return this;
+    }
+
+    public QueryStringBuilder parameterMap(Map<String, String[]> parameterMap) {
+
+        log.finest("Setting query parameter map: " + parameterMap);
+
+        query = null;
+        parameters = null;
+        this.parameterMap = parameterMap;
 
         return this;
     }
@@ -216,357 +242,121 @@ public class QueryStringBuilder {
         return this;
     }
 
-    public QueryStringBuilder allowFilter(Predicate<QueryFilter> predicate) {
+    public QueryStringBuilder maxQueryLength(Integer length) {
 
-        filterPredicate = predicate;
+        log.finest("Setting max query length: " + length);
 
-        return this;
-    }
+        if (length != null && length < 0)
+            throw new IllegalArgumentException("The passed length must be a positive number");
 
-    public QueryStringBuilder allowOrder(Predicate<QueryOrder> predicate) {
-
-        orderPredicate = predicate;
+        maxQueryLength = length;
 
         return this;
     }
 
-    public QueryStringBuilder allowField(Predicate<String> predicate) {
+    public QueryStringBuilder maxFilters(Integer count) {
 
-        fieldPredicate = predicate;
+        log.finest("Setting max filters: " + count);
 
-        return this;
-    }
+        if (count != null && count < 0)
+            throw new IllegalArgumentException("The passed count must be a positive number");
 
-    public QueryParameters build() {
-
-        log.finest("Building query string: " + query);
-
-        QueryParameters params = new QueryParameters();
-
-        if (paginationEnabled && defaultLimit != null) params.setLimit(defaultLimit);
-        if (paginationEnabled && defaultOffset != null) params.setOffset(defaultOffset);
-
-        if (query == null || query.isEmpty()) return params;
-
-        for (String pair : query.split("&+(?=([^']*'[^']*')*[^']*$)")) {
-
-            int idxOfPair = pair.indexOf("=");
-
-            if (idxOfPair == -1) {
-
-                buildPair(params, pair, "");
-                continue;
-            }
+        maxFilters = count;
 
-            String key, value;
-
-            key = pair.substring(0, idxOfPair);
-            value = pair.substring(idxOfPair + 1);
-
-            buildPair(params, key, value);
-        }
-
-        return params;
+        return this;
     }
 
-    private void buildPair(QueryParameters params, String key, String value) {
-
-        log.finest("Building query string pair: " + key + " " + value);
-
-        if (params == null) return;
-
-        if (key == null || key.isEmpty()) return;
-
-        if (value == null || value.isEmpty()) return;
+    public QueryStringBuilder maxFilterValues(Integer count) {
 
-        switch (key) {
+        log.finest("Setting max filter values: " + count);
 
-            case LIMIT_DELIMITER:
-            case LIMIT_DELIMITER_ALT:
+        if (count != null && count < 0)
+            throw new IllegalArgumentException("The passed count must be a positive number");
 
-                if (paginationEnabled) {
-                    params.setLimit(buildLimit(key, value));
-                }
+        maxFilterValues = count;
 
-                break;
-
-            case OFFSET_DELIMITER:
-            case OFFSET_DELIMITER_ALT:
-
-                if (paginationEnabled) {
-                    params.setOffset(buildOffset(key, value));
-                }
-
-                break;
-
-            case ORDER_DELIMITER:
-            case ORDER_DELIMITER_ALT:
-
-                if (orderEnabled) {
-                    params.getOrder().clear();
-
-                    Arrays.stream(value.split(",")).map(o -> buildOrder(key, o))
-                            .filter(o -> o != null && (orderPredicate == null || orderPredicate.test(o)))
-                            .distinct()
-                            .forEach(o -> params.getOrder().add(o));
-                }
-
-                break;
-
-            case FIELDS_DELIMITER:
-            case FIELDS_DELIMITER_ALT:
-
-                if (fieldsEnabled) {
-                    params.getFields().clear();
-
-                    params.getFields().addAll(buildFields(value));
-                }
-
-                break;
-
-            case FILTER_DELIMITER:
-            case FILTER_DELIMITER_ALT:
-
-                if (filtersEnabled) {
-                    params.getFilters().clear();
-
-                    params.getFilters().addAll(buildFilter(key, value));
-
-                }
-
-                break;
-        }
+        return this;
     }
 
-    private Long buildOffset(String key, String value) {
-
-        log.finest("Building offset string: " + value);
+    public QueryStringBuilder maxOrder(Integer count) {
 
-        Long offset = parseLong(key, value);
+        log.finest("Setting max order: " + count);
 
-        if (offset < 0) {
+        if (count != null && count < 0)
+            throw new IllegalArgumentException("The passed count must be a positive number");
 
-            String msg = "Value for '" + key + "' is negative: '" + value + "'";
+        maxOrder = count;
 
-            log.finest(msg);
-
-            throw new QueryFormatException(msg, key, QueryFormatError.NEGATIVE);
-        }
-
-        return offset;
+        return this;
     }
 
-    private Long buildLimit(String key, String value) {
-
-        log.finest("Building limit string: " + value);
+    public QueryStringBuilder maxFields(Integer count) {
 
-        Long limit = parseLong(key, value);
+        log.finest("Setting max fields: " + count);
 
-        if (limit < 0) {
+        if (count != null && count < 0)
+            throw new IllegalArgumentException("The passed count must be a positive number");
 
-            String msg = "Value for '" + key + "' is negative: '" + value + "'";
+        maxFields = count;
 
-            log.finest(msg);
-
-            throw new QueryFormatException(msg, key, QueryFormatError.NEGATIVE);
-        }
-
-        if (maxLimit != null && limit > maxLimit) limit = maxLimit;
-
-        return limit;
+        return this;
     }
 
-    private QueryOrder buildOrder(String key, String value) {
-
-        log.finest("Building order string: " + value);
-
-        if (value == null || value.isEmpty()) return null;
-
-        QueryOrder o = new QueryOrder();
-
-        String[] pair = value.split("(\\s|\\+)");
-
-        if (pair[0].isEmpty()) {
-
-            String msg = "Value for '" + key + "' is malformed: '" + value + "'";
-
-            log.finest(msg);
-
-            throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
-        }
-
-        o.setField(pair[0]);
-
-        if (pair.length > 1) {
-
-            try {
-
-                o.setOrder(OrderDirection.valueOf(pair[1].toUpperCase()));
-            } catch (IllegalArgumentException e) {
-
-                String msg = "Constant in '" + key + "' does not exist: '" + value + "'";
-
-                log.finest(msg);
-
-                throw new QueryFormatException(msg, key, QueryFormatError.NO_SUCH_CONSTANT);
-            }
-        } else {
+    public QueryStringBuilder allowFilter(Predicate<QueryFilter> predicate) {
 
-            o.setOrder(OrderDirection.ASC);
-        }
+        filterPredicate = predicate;
 
-        return o;
+        return this;
     }
 
-    private List<String> buildFields(String value) {
+    public QueryStringBuilder allowOrder(Predicate<QueryOrder> predicate) {
 
-        log.finest("Building fields string: " + value);
+        orderPredicate = predicate;
 
-        return Arrays.stream(value.split(","))
-                .filter(f -> !f.isEmpty() && (fieldPredicate == null || fieldPredicate.test(f)))
-                .distinct()
-                .collect(Collectors.toList());
+        return this;
     }
 
-    private List<QueryFilter> buildFilter(String key, String value) {
-
-        log.finest("Building filter string: " + value);
-
-        List<QueryFilter> filterList = new ArrayList<>();
-
-        if (value == null || value.isEmpty()) return filterList;
-
-        Pattern filterPattern = Pattern.compile("[:]+(?=([^']*'[^']*')*[^']*$)") ;
-
-        List<String[]> filters = Arrays.stream(value.split("[(\\s|+)]+(?=([^']*'[^']*')*[^']*$)"))
-                .map(filterPattern::split)
-                .collect(Collectors.toList());
-
-        filters.stream().filter(f -> f.length == 2).forEach(f -> {
-
-            QueryFilter qf = new QueryFilter();
-            qf.setField(f[0]);
-            qf.setOperation(parseFilterOperation(key, f[1].toUpperCase()));
-
-            if ((qf.getOperation() == FilterOperation.ISNULL || qf.getOperation() == FilterOperation.ISNOTNULL)
-                    && (filterPredicate == null || filterPredicate.test(qf))) {
-
-                filterList.add(qf);
-            }
-        });
-
-        Pattern valueListPattern = Pattern.compile("^\\[(.*)]$");
-        Pattern valuesPattern = Pattern.compile("[,]+(?=([^']*'[^']*')*[^']*$)");
-
-        Pattern valueDateTimePattern = Pattern.compile("^dt'(.*)'$");
-        Pattern valuePattern = Pattern.compile("(^')|('$)");
-
-        filters.stream()
-                .filter(f -> f.length == 3)
-                .forEach(f -> {
-
-                    QueryFilter qf = new QueryFilter();
-                    qf.setField(f[0]);
-                    qf.setOperation(parseFilterOperation(key, f[1].toUpperCase()));
-
-                    Matcher matcher;
-
-                    if ((matcher = valueListPattern.matcher(f[2])).find() &&
-                            (qf.getOperation() == FilterOperation.IN ||
-                            qf.getOperation() == FilterOperation.NIN ||
-                            qf.getOperation() == FilterOperation.NINIC ||
-                            qf.getOperation() == FilterOperation.INIC)) {
-
-                        String values = matcher.group(1);
-
-                        Arrays.stream(valuesPattern.split(values))
-                                .filter(e -> !e.isEmpty()).distinct()
-                                .map(e -> valuePattern.matcher(e).replaceAll(""))
-                                .forEach(e -> qf.getValues().add(e));
-
-                    } else if ((matcher = valueDateTimePattern.matcher(f[2])).find()) {
-
-                        Date d = parseDate(matcher.group(1));
-
-                        if (d == null) {
-
-                            String msg = "Value for '" + key + "' is malformed: '" + value + "'";
-
-                            log.finest(msg);
-
-                            throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
-                        }
-
-                        qf.setDateValue(d);
-                    } else {
-
-                        qf.setValue(valuePattern.matcher(f[2]).replaceAll(""));
-                    }
-
-                    if (filterPredicate == null || filterPredicate.test(qf)) {
+    public QueryStringBuilder allowField(Predicate<String> predicate) {
 
-                        filterList.add(qf);
-                    }
-                });
+        fieldPredicate = predicate;
 
-        return filterList;
+        return this;
     }
 
-    private Date parseDate(String date) {
+    /**
+     * Validates the parsed query parameters against the schema of an entity, so that unknown fields
+     * and invalid values are rejected at parse time.
+     *
+     * @see EntitySchema#validate(QueryParameters)
+     */
+    public QueryStringBuilder schema(EntitySchema schema) {
 
-        try {
-            return Date.from(ZonedDateTime.parse(date).toInstant());
-        } catch (DateTimeParseException e) {
+        this.schema = schema;
 
-            return null;
-        }
+        return this;
     }
 
-    private Long parseLong(String key, String value) {
-
-        try {
+    public QueryParameters build() {
 
-            return Long.parseLong(value);
-        } catch (NumberFormatException e) {
+        if (parameters != null) return parser().parseParameters(parameters);
 
-            String msg = "Value for '" + key + "' is not a number: '" + value + "'";
+        if (parameterMap != null) return parser().parseParameterMap(parameterMap);
 
-            log.finest(msg);
+        log.finest("Building query string: " + query);
 
-            throw new QueryFormatException(msg, key, QueryFormatError.NOT_A_NUMBER);
-        }
+        return encoded ? parser().parseEncoded(query) : parser().parse(query);
     }
 
-    private FilterOperation parseFilterOperation(String key, String value) {
+    public ImmutableQueryParameters buildImmutable() {
 
-        try {
-
-            return FilterOperation.valueOf(value);
-        } catch (IllegalArgumentException e) {
-
-            String msg = "Constant in '" + key + "' does not exist: '" + value + "'";
-
-            log.finest(msg);
-
-            throw new QueryFormatException(msg, key, QueryFormatError.NO_SUCH_CONSTANT);
-        }
+        return ImmutableQueryParameters.copyOf(build());
     }
 
-    private String decodeUrl(String url) {
+    public QueryStringParser parser() {
 
-        if (url == null) return null;
-
-        try {
-            if (!URLEncoder.encode(url, StandardCharsets.UTF_8.displayName()).equals(url)) {
-                return URLDecoder.decode(url, StandardCharsets.UTF_8.displayName());
-            } else {
-                return url;
-            }
-        } catch (UnsupportedEncodingException e) {
-
-            log.severe("UTF-8 encoding is not supported on this system");
-
-            throw new AssertionError();
-        }
+        return new QueryStringParser(paginationEnabled, filtersEnabled, orderEnabled, fieldsEnabled, maxLimit,
+                defaultLimit, defaultOffset, maxQueryLength,
+                new QueryStringTokenizer(filterPredicate, orderPredicate, fieldPredicate, maxFilters,
+                        maxFilterValues, maxOrder, maxFields), schema);
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.github.tfaga.lynx.utils;
 
 import com.github.tfaga.lynx.beans.QueryFilter;
 import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
 
 import java.util.function.Predicate;
 
@@ -19,14 +20,28 @@ public class QueryStringDefaults {
     private Long defaultLimit = 10L;
     private Long defaultOffset = 0L;
 
+    private Integer maxQueryLength;
+    private Integer maxFilters;
+    private Integer maxFilterValues;
+    private Integer maxOrder;
+    private Integer maxFields;
+
     private Predicate<QueryFilter> filterPredicate;
     private Predicate<QueryOrder> orderPredicate;
     private Predicate<String> fieldPredicate;
 
+    private EntitySchema schema;
+
+    private QueryParametersCache cache;
+
+    private volatile QueryStringParser parser;
+
     public QueryStringDefaults enablePagination(Boolean enable) {
 
         paginationEnabled = enable;
 
+        invalidate();
+
         return this;
     }
 
@@ -34,6 +49,8 @@ public class QueryStringDefaults {
 
         filtersEnabled = enable;
 
+        invalidate();
+
         return this;
     }
 
@@ -41,6 +58,8 @@ public class QueryStringDefaults {
 
         orderEnabled = enable;
 
+        invalidate();
+
         return this;
     }
 
@@ -48,6 +67,8 @@ public class QueryStringDefaults {
 
         fieldsEnabled = enable;
 
+        invalidate();
+
         return this;
     }
 
@@ -60,6 +81,8 @@ public class QueryStringDefaults {
 
         maxLimit = limit;
 
+        invalidate();
+
         return this;
     }
 
@@ -72,6 +95,8 @@ public class QueryStringDefaults {
 
         defaultLimit = limit;
 
+        invalidate();
+
         return this;
     }
 
@@ -84,6 +109,53 @@ public class QueryStringDefaults {
 
         defaultOffset = offset;
 
+        invalidate();
+
+        return this;
+    }
+
+    public QueryStringDefaults maxQueryLength(Integer length) {
+
+        maxQueryLength = length;
+
+        invalidate();
+
+        return this;
+    }
+
+    public QueryStringDefaults maxFilters(Integer count) {
+
+        maxFilters = count;
+
+        invalidate();
+
+        return this;
+    }
+
+    public QueryStringDefaults maxFilterValues(Integer count) {
+
+        maxFilterValues = count;
+
+        invalidate();
+
+        return this;
+    }
+
+    public QueryStringDefaults maxOrder(Integer count) {
+
+        maxOrder = count;
+
+        invalidate();
+
+        return this;
+    }
+
+    public QueryStringDefaults maxFields(Integer count) {
+
+        maxFields = count;
+
+        invalidate();
+
         return this;
     }
 
@@ -91,6 +163,8 @@ public class QueryStringDefaults {
 
         filterPredicate = predicate;
 
+        invalidate();
+
         return this;
     }
 
@@ -98,6 +172,8 @@ public class QueryStringDefaults {
 
         orderPredicate = predicate;
 
+        invalidate();
+
         return this;
     }
 
@@ -105,20 +181,76 @@ public class QueryStringDefaults {
 
         fieldPredicate = predicate;
 
+        invalidate();
+
+        return this;
+    }
+
+    public QueryStringDefaults schema(EntitySchema schema) {
+
+        this.schema = schema;
+
+        invalidate();
+
         return this;
     }
 
+    public QueryStringDefaults cacheSize(int size) {
+
+        cache = size > 0 ? new QueryParametersCache(size) : null;
+
+        return this;
+    }
+
+    public QueryParametersCache getCache() {
+        return cache;
+    }
+
+    public ImmutableQueryParameters queryEncoded(String queryString) {
+
+        QueryStringParser parser = parser();
+
+        if (cache == null || queryString == null)
+            return ImmutableQueryParameters.copyOf(parser.parseEncoded(queryString));
+
+        return cache.get(queryString, q -> ImmutableQueryParameters.copyOf(parser.parseEncoded(q)));
+    }
+
+    public QueryStringParser parser() {
+
+        QueryStringParser compiled = parser;
+
+        if (compiled == null) {
+            parser = compiled = builder().parser();
+        }
+
+        return compiled;
+    }
+
     public QueryStringBuilder builder() {
         return new QueryStringBuilder()
                 .maxLimit(maxLimit)
                 .defaultLimit(defaultLimit)
                 .defaultOffset(defaultOffset)
+                .maxQueryLength(maxQueryLength)
+                .maxFilters(maxFilters)
+                .maxFilterValues(maxFilterValues)
+                .maxOrder(maxOrder)
+                .maxFields(maxFields)
                 .enablePagination(paginationEnabled)
                 .enableFilters(filtersEnabled)
                 .enableOrder(orderEnabled)
                 .enableFields(fieldsEnabled)
                 .allowFilter(filterPredicate)
                 .allowOrder(orderPredicate)
-                .allowField(fieldPredicate);
+                .allowField(fieldPredicate)
+                .schema(schema);
+    }
+
+    private void invalidate() {
+
+        parser = null;
+
+        if (cache != null) cache.clear();
     }
 }
@@ -0,0 +1,507 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Immutable query string parser compiled from the configuration of a {@link QueryStringBuilder}
+ * or {@link QueryStringDefaults}. A single instance can be shared and used concurrently by any
+ * number of threads, as no state is kept between calls to {@link #parse(CharSequence)}.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public final class QueryStringParser {
+
+    private static final Logger log = Logger.getLogger(QueryStringParser.class.getSimpleName());
+
+    public static final String JSON_LIMIT = "limit";
+    public static final String JSON_OFFSET = "offset";
+    public static final String JSON_AFTER = "after";
+    public static final String JSON_BEFORE = "before";
+    public static final String JSON_ORDER = "order";
+    public static final String JSON_FIELDS = "fields";
+    public static final String JSON_FILTERS = "filters";
+
+    private final boolean paginationEnabled;
+    private final boolean filtersEnabled;
+    private final boolean orderEnabled;
+    private final boolean fieldsEnabled;
+
+    private final Long maxLimit;
+    private final Long defaultLimit;
+    private final Long defaultOffset;
+
+    private final Integer maxQueryLength;
+
+    private final QueryStringTokenizer tokenizer;
+
+    private final EntitySchema schema;
+
+    QueryStringParser(boolean paginationEnabled, boolean filtersEnabled, boolean orderEnabled, boolean fieldsEnabled,
+                      Long maxLimit, Long defaultLimit, Long defaultOffset, Integer maxQueryLength,
+                      QueryStringTokenizer tokenizer, EntitySchema schema) {
+        this.paginationEnabled = paginationEnabled;
+        this.filtersEnabled = filtersEnabled;
+        this.orderEnabled = orderEnabled;
+        this.fieldsEnabled = fieldsEnabled;
+        this.maxLimit = maxLimit;
+        this.defaultLimit = defaultLimit;
+        this.defaultOffset = defaultOffset;
+        this.maxQueryLength = maxQueryLength;
+        this.tokenizer = tokenizer;
+        this.schema = schema;
+    }
+
+    public QueryParameters parse(CharSequence query) {
+
+        log.finest("Parsing query string: " + query);
+
+        QueryParameters params = createParameters();
+
+        if (query == null || query.length() == 0) return params;
+
+        checkQueryLength(query.length());
+
+        tokenizer.pairs(query, false, (key, value) -> buildPair(params, key, value));
+
+        return validate(params);
+    }
+
+    /**
+     * Parses a URL encoded query string. The query is split into pairs before decoding and only the
+     * keys and values are decoded, so encoded separators like {@code %26} or {@code %3D} remain part
+     * of the value they appear in. The maximum query length applies to the encoded query.
+     */
+    public QueryParameters parseEncoded(CharSequence query) {
+
+        log.finest("Parsing encoded query string: " + query);
+
+        QueryParameters params = createParameters();
+
+        if (query == null || query.length() == 0) return params;
+
+        checkQueryLength(query.length());
+
+        tokenizer.pairs(query, true, (key, value) -> buildPair(params, key, value));
+
+        return validate(params);
+    }
+
+    /**
+     * Parses query parameters that were already split and decoded, for example by JAX-RS
+     * ({@code UriInfo.getQueryParameters()}). Repeated values of a key are applied in order; when
+     * both a key and its alternative are present, the iteration order of the map decides.
+     */
+    public QueryParameters parseParameters(Map<String, List<String>> parameters) {
+
+        log.finest("Parsing query parameters: " + parameters);
+
+        QueryParameters params = createParameters();
+
+        if (parameters == null || parameters.isEmpty()) return params;
+
+        // Measured as if the parameters were joined into a query string
+        long length = -1;
+
+        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+
+            if (entry.getKey() == null || entry.getValue() == null) continue;
+
+            for (String value : entry.getValue()) {
+                length += entry.getKey().length() + (value == null ? 0 : value.length()) + 2;
+            }
+        }
+
+        checkQueryLength(length);
+
+        for (Map.Entry<String, List<String>> entry : parameters.entrySet()) {
+
+            if (entry.getValue() == null) continue;
+
+            for (String value : entry.getValue()) {
+                buildPair(params, entry.getKey(), value);
+            }
+        }
+
+        return validate(params);
+    }
+
+    /**
+     * Parses query parameters that were already split and decoded, for example by a servlet
+     * container ({@code ServletRequest.getParameterMap()}).
+     *
+     * @see #parseParameters(Map)
+     */
+    public QueryParameters parseParameterMap(Map<String, String[]> parameters) {
+
+        if (parameters == null) return parseParameters(null);
+
+        Map<String, List<String>> lists = new LinkedHashMap<>();
+
+        parameters.forEach((key, values) -> lists.put(key, values == null ? null : Arrays.asList(values)));
+
+        return parseParameters(lists);
+    }
+
+    /**
+     * Parses a JSON search body, meant for queries that are too large for the URL, such as filters
+     * with thousands of values. The document is read in a single streaming pass without building an
+     * intermediate tree and the same predicates and limits are applied as to query strings, with the
+     * maximum query length bounding the number of characters of the body:
+     * <pre>
+     * {
+     *   "limit": 20,
+     *   "offset": 40,
+     *   "after": "AQAAAAEC...",
+     *   "order": [{"field": "name", "order": "DESC"}],
+     *   "fields": ["id", "name"],
+     *   "filters": [
+     *     {"field": "id", "operation": "IN", "values": [1, 2, 3]},
+     *     {"field": "createdAt", "operation": "GTE", "dateValue": "2014-11-26T11:15:08Z"},
+     *     {"field": "email", "operation": "ISNOTNULL"}
+     *   ]
+     * }
+     * </pre>
+     * Unknown properties are ignored and an empty body results in the default parameters.
+     */
+    public QueryParameters parseJson(Reader body) throws IOException {
+
+        log.finest("Parsing search body");
+
+        QueryParameters params = createParameters();
+
+        JsonReader json = new JsonReader(body, maxQueryLength);
+
+        if (json.isEmpty()) return params;
+
+        json.beginObject();
+
+        while (json.hasNext()) {
+
+            String key = json.nextName();
+
+            switch (key) {
+
+                case JSON_LIMIT:
+
+                    String limit = json.nextValue();
+
+                    if (paginationEnabled && limit != null) {
+                        params.setLimit(buildLimit(key, limit));
+                    }
+
+                    break;
+
+                case JSON_OFFSET:
+
+                    String offset = json.nextValue();
+
+                    if (paginationEnabled && offset != null) {
+                        params.setOffset(buildOffset(key, offset));
+                    }
+
+                    break;
+
+                case JSON_AFTER:
+
+                    String after = json.nextValue();
+
+                    if (paginationEnabled && after != null && !after.isEmpty()) {
+                        params.setAfter(after);
+                    }
+
+                    break;
+
+                case JSON_BEFORE:
+
+                    String before = json.nextValue();
+
+                    if (paginationEnabled && before != null && !before.isEmpty()) {
+                        params.setBefore(before);
+                    }
+
+                    break;
+
+                case JSON_ORDER:
+
+                    if (orderEnabled) {
+                        params.getOrder().clear();
+
+                        params.getOrder().addAll(tokenizer.order(key, json));
+                    } else {
+                        json.skipValue();
+                    }
+
+                    break;
+
+                case JSON_FIELDS:
+
+                    if (fieldsEnabled) {
+                        params.getFields().clear();
+
+                        params.getFields().addAll(tokenizer.fields(key, json));
+                    } else {
+                        json.skipValue();
+                    }
+
+                    break;
+
+                case JSON_FILTERS:
+
+                    if (filtersEnabled) {
+                        params.getFilters().clear();
+
+                        params.getFilters().addAll(tokenizer.filters(key, json));
+                    } else {
+                        json.skipValue();
+                    }
+
+                    break;
+
+                default:
+                    json.skipValue();
+            }
+        }
+
+        json.endObject();
+        json.endDocument();
+
+        return validate(params);
+    }
+
+    /**
+     * Parses a UTF-8 encoded JSON search body.
+     *
+     * @see #parseJson(Reader)
+     */
+    public QueryParameters parseJson(InputStream body) throws IOException {
+
+        return parseJson(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @see #parseJson(Reader)
+     */
+    public QueryParameters parseJson(CharSequence body) {
+
+        try {
+
+            return parseJson(new StringReader(body == null ? "" : body.toString()));
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private QueryParameters createParameters() {
+
+        QueryParameters params = new QueryParameters();
+
+        if (paginationEnabled && defaultLimit != null) params.setLimit(defaultLimit);
+        if (paginationEnabled && defaultOffset != null) params.setOffset(defaultOffset);
+
+        return params;
+    }
+
+    private QueryParameters validate(QueryParameters params) {
+
+        if (params.getAfter() != null && params.getBefore() != null) {
+
+            String msg = "Only one of '" + QueryStringBuilder.AFTER_DELIMITER + "' and '" +
+                    QueryStringBuilder.BEFORE_DELIMITER + "' can be set";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, QueryStringBuilder.BEFORE_DELIMITER, QueryFormatError.MALFORMED);
+        }
+
+        if (schema != null) schema.validate(params);
+
+        return params;
+    }
+
+    private void checkQueryLength(long length) {
+
+        if (maxQueryLength != null && length > maxQueryLength) {
+
+            String msg = "Query exceeds the maximum length of " + maxQueryLength + " characters";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, null, QueryFormatError.LIMIT_EXCEEDED);
+        }
+    }
+
+    private void buildPair(QueryParameters params, String key, String value) {
+
+        log.finest("Building query string pair: " + key + " " + value);
+
+        if (params == null) return;
+
+        if (key == null || key.isEmpty()) return;
+
+        if (value == null || value.isEmpty()) return;
+
+        switch (key) {
+
+            case QueryStringBuilder.LIMIT_DELIMITER:
+            case QueryStringBuilder.LIMIT_DELIMITER_ALT:
+
+                if (paginationEnabled) {
+                    params.setLimit(buildLimit(key, value));
+                }
+
+                break;
+
+            case QueryStringBuilder.OFFSET_DELIMITER:
+            case QueryStringBuilder.OFFSET_DELIMITER_ALT:
+
+                if (paginationEnabled) {
+                    params.setOffset(buildOffset(key, value));
+                }
+
+                break;
+
+            case QueryStringBuilder.AFTER_DELIMITER:
+
+                if (paginationEnabled) {
+                    params.setAfter(value);
+                }
+
+                break;
+
+            case QueryStringBuilder.BEFORE_DELIMITER:
+
+                if (paginationEnabled) {
+                    params.setBefore(value);
+                }
+
+                break;
+
+            case QueryStringBuilder.ORDER_DELIMITER:
+            case QueryStringBuilder.ORDER_DELIMITER_ALT:
+
+                if (orderEnabled) {
+                    params.getOrder().clear();
+
+                    params.getOrder().addAll(buildOrder(key, value));
+                }
+
+                break;
+
+            case QueryStringBuilder.FIELDS_DELIMITER:
+            case QueryStringBuilder.FIELDS_DELIMITER_ALT:
+
+                if (fieldsEnabled) {
+                    params.getFields().clear();
+
+                    params.getFields().addAll(buildFields(key, value));
+                }
+
+                break;
+
+            case QueryStringBuilder.FILTER_DELIMITER:
+            case QueryStringBuilder.FILTER_DELIMITER_ALT:
+
+                if (filtersEnabled) {
+                    params.getFilters().clear();
+
+                    params.getFilters().addAll(buildFilter(key, value));
+
+                }
+
+                break;
+        }
+    }
+
+    private Long buildOffset(String key, String value) {
+
+        log.finest("Building offset string: " + value);
+
+        Long offset = parseLong(key, value);
+
+        if (offset < 0) {
+
+            String msg = "Value for '" + key + "' is negative: '" + value + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.NEGATIVE);
+        }
+
+        return offset;
+    }
+
+    private Long buildLimit(String key, String value) {
+
+        log.finest("Building limit string: " + value);
+
+        Long limit = parseLong(key, value);
+
+        if (limit < 0) {
+
+            String msg = "Value for '" + key + "' is negative: '" + value + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.NEGATIVE);
+        }
+
+        if (maxLimit != null && limit > maxLimit) limit = maxLimit;
+
+        return limit;
+    }
+
+    private List<QueryOrder> buildOrder(String key, String value) {
+
+        log.finest("Building order string: " + value);
+
+        return tokenizer.order(key, value);
+    }
+
+    private List<String> buildFields(String key, String value) {
+
+        log.finest("Building fields string: " + value);
+
+        return tokenizer.fields(key, value);
+    }
+
+    private List<QueryFilter> buildFilter(String key, String value) {
+
+        log.finest("Building filter string: " + value);
+
+        return tokenizer.filters(key, value);
+    }
+
+    private Long parseLong(String key, String value) {
+
+        try {
+
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+
+            String msg = "Value for '" + key + "' is not a number: '" + value + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.NOT_A_NUMBER);
+        }
+    }
+}
@@ -0,0 +1,775 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Single pass tokenizer for the query string grammar. Every character of the query is visited a
+ * constant number of times, so the parsing cost grows linearly with the length of the query, even
+ * for filters containing large quoted value lists. The same predicates and limits are applied to
+ * the order, fields and filters of JSON search bodies read with a {@link JsonReader}.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class QueryStringTokenizer {
+
+    private static final Logger log = Logger.getLogger(QueryStringTokenizer.class.getSimpleName());
+
+    private static final String WHITESPACE = " \t\n\u000B\f\r";
+
+    private static final String PAIR_DELIMITERS = "&";
+    private static final String LIST_DELIMITERS = ",";
+    private static final String ORDER_DELIMITERS = WHITESPACE + "+";
+    private static final String FILTER_DELIMITERS = WHITESPACE + "()|+";
+    private static final String FILTER_PART_DELIMITERS = ":";
+
+    private static final String DATE_PREFIX = "dt'";
+
+    private final Predicate<QueryFilter> filterPredicate;
+    private final Predicate<QueryOrder> orderPredicate;
+    private final Predicate<String> fieldPredicate;
+
+    private final Integer maxFilters;
+    private final Integer maxFilterValues;
+    private final Integer maxOrder;
+    private final Integer maxFields;
+
+    QueryStringTokenizer(Predicate<QueryFilter> filterPredicate, Predicate<QueryOrder> orderPredicate,
+                         Predicate<String> fieldPredicate, Integer maxFilters, Integer maxFilterValues,
+                         Integer maxOrder, Integer maxFields) {
+        this.filterPredicate = filterPredicate;
+        this.orderPredicate = orderPredicate;
+        this.fieldPredicate = fieldPredicate;
+        this.maxFilters = maxFilters;
+        this.maxFilterValues = maxFilterValues;
+        this.maxOrder = maxOrder;
+        this.maxFields = maxFields;
+    }
+
+    /**
+     * Splits the query into key value pairs. When the query is URL encoded, the pairs are split on
+     * the raw query and only then are their keys and values decoded, so encoded separators like
+     * {@code %26} stay part of the value.
+     */
+    void pairs(CharSequence query, boolean encoded, BiConsumer<String, String> consumer) {
+
+        Splitter pairs = new Splitter(query, 0, query.length(), PAIR_DELIMITERS, true);
+
+        while (pairs.next()) {
+
+            int idxOfPair = indexOf(query, '=', pairs.start, pairs.end);
+
+            if (idxOfPair == -1) {
+
+                consumer.accept(token(query, pairs.start, pairs.end, encoded), "");
+                continue;
+            }
+
+            String key = token(query, pairs.start, idxOfPair, encoded);
+
+            consumer.accept(key, encoded ? decode(key, query, idxOfPair + 1, pairs.end) :
+                    substring(query, idxOfPair + 1, pairs.end));
+        }
+    }
+
+    List<QueryOrder> order(String key, CharSequence value) {
+
+        Set<QueryOrder> orders = new LinkedHashSet<>();
+
+        Splitter entries = new Splitter(value, 0, value.length(), LIST_DELIMITERS, false);
+
+        int count = 0;
+
+        while (entries.next()) {
+
+            if (entries.start == entries.end) continue;
+
+            checkLimit(key, "order", ++count, maxOrder);
+
+            QueryOrder o = buildOrder(key, value, entries.start, entries.end);
+
+            if (orderPredicate == null || orderPredicate.test(o)) {
+                orders.add(o);
+            }
+        }
+
+        return new ArrayList<>(orders);
+    }
+
+    List<String> fields(String key, CharSequence value) {
+
+        Set<String> fields = new LinkedHashSet<>();
+
+        Splitter entries = new Splitter(value, 0, value.length(), LIST_DELIMITERS, false);
+
+        int count = 0;
+
+        while (entries.next()) {
+
+            if (entries.start == entries.end) continue;
+
+            checkLimit(key, "field", ++count, maxFields);
+
+            String field = substring(value, entries.start, entries.end);
+
+            if (fieldPredicate == null || fieldPredicate.test(field)) {
+                fields.add(field);
+            }
+        }
+
+        return new ArrayList<>(fields);
+    }
+
+    List<QueryFilter> filters(String key, CharSequence value) {
+
+        // Unary filters are listed before the binary ones
+        List<QueryFilter> unaryFilters = new ArrayList<>();
+        List<QueryFilter> binaryFilters = new ArrayList<>();
+
+        Splitter filters = new Splitter(value, 0, value.length(), FILTER_DELIMITERS, true);
+
+        int[] parts = new int[6];
+        int filterCount = 0;
+
+        while (filters.next()) {
+
+            Splitter filterParts = new Splitter(value, filters.start, filters.end, FILTER_PART_DELIMITERS, true);
+
+            int count = 0;
+
+            while (filterParts.next()) {
+
+                if (count < 3) {
+                    parts[count * 2] = filterParts.start;
+                    parts[count * 2 + 1] = filterParts.end;
+                }
+
+                count++;
+            }
+
+            if (count == 2 || count == 3) {
+                checkLimit(key, "filter", ++filterCount, maxFilters);
+            }
+
+            if (count == 2) {
+
+                QueryFilter qf = new QueryFilter(substring(value, parts[0], parts[1]),
+                        parseFilterOperation(key, substring(value, parts[2], parts[3])));
+
+                if ((qf.getOperation() == FilterOperation.ISNULL || qf.getOperation() == FilterOperation.ISNOTNULL)
+                        && (filterPredicate == null || filterPredicate.test(qf))) {
+
+                    unaryFilters.add(qf);
+                }
+            } else if (count == 3) {
+
+                QueryFilter qf = buildBinaryFilter(key, value, parts);
+
+                if (filterPredicate == null || filterPredicate.test(qf)) {
+
+                    binaryFilters.add(qf);
+                }
+            }
+        }
+
+        unaryFilters.addAll(binaryFilters);
+
+        return unaryFilters;
+    }
+
+    /**
+     * Reads an array of order objects with a {@code field} and an optional {@code order} direction.
+     */
+    List<QueryOrder> order(String key, JsonReader json) throws IOException {
+
+        Set<QueryOrder> orders = new LinkedHashSet<>();
+
+        int count = 0;
+
+        json.beginArray();
+
+        while (json.hasNext()) {
+
+            checkLimit(key, "order", ++count, maxOrder);
+
+            QueryOrder o = new QueryOrder();
+            o.setOrder(OrderDirection.ASC);
+
+            json.beginObject();
+
+            while (json.hasNext()) {
+
+                switch (json.nextName()) {
+
+                    case "field":
+                        o.setField(json.nextValue());
+                        break;
+
+                    case "order":
+                        String direction = json.nextValue();
+
+                        if (direction != null) o.setOrder(parseOrderDirection(key, direction));
+
+                        break;
+
+                    default:
+                        json.skipValue();
+                }
+            }
+
+            json.endObject();
+
+            if (o.getField() == null || o.getField().isEmpty()) throw malformed(key, "order without a field");
+
+            if (orderPredicate == null || orderPredicate.test(o)) {
+                orders.add(o);
+            }
+        }
+
+        json.endArray();
+
+        return new ArrayList<>(orders);
+    }
+
+    /**
+     * Reads an array of field names.
+     */
+    List<String> fields(String key, JsonReader json) throws IOException {
+
+        Set<String> fields = new LinkedHashSet<>();
+
+        int count = 0;
+
+        json.beginArray();
+
+        while (json.hasNext()) {
+
+            String field = json.nextValue();
+
+            if (field == null || field.isEmpty()) continue;
+
+            checkLimit(key, "field", ++count, maxFields);
+
+            if (fieldPredicate == null || fieldPredicate.test(field)) {
+                fields.add(field);
+            }
+        }
+
+        json.endArray();
+
+        return new ArrayList<>(fields);
+    }
+
+    /**
+     * Reads an array of filter objects with a {@code field}, an {@code operation} and, unless the
+     * operation is unary, either a {@code value}, an ISO-8601 {@code dateValue} or a list of
+     * {@code values}. The limits are checked as the filters and values are read, so an oversized
+     * body is rejected without reading it whole.
+     */
+    List<QueryFilter> filters(String key, JsonReader json) throws IOException {
+
+        // Unary filters are listed before the binary ones
+        List<QueryFilter> unaryFilters = new ArrayList<>();
+        List<QueryFilter> binaryFilters = new ArrayList<>();
+
+        int filterCount = 0;
+
+        json.beginArray();
+
+        while (json.hasNext()) {
+
+            checkLimit(key, "filter", ++filterCount, maxFilters);
+
+            QueryFilter qf = new QueryFilter();
+
+            boolean hasValue = false;
+
+            json.beginObject();
+
+            while (json.hasNext()) {
+
+                switch (json.nextName()) {
+
+                    case "field":
+                        qf.setField(json.nextValue());
+                        break;
+
+                    case "operation":
+                        String operation = json.nextValue();
+
+                        if (operation != null) qf.setOperation(parseFilterOperation(key, operation));
+
+                        break;
+
+                    case "value":
+                        qf.setValue(json.nextValue());
+
+                        hasValue |= qf.getValue() != null;
+
+                        break;
+
+                    case "dateValue":
+                        String date = json.nextValue();
+
+                        if (date != null) {
+
+                            Date d = parseDate(date);
+
+                            if (d == null) throw malformed(key, date);
+
+                            qf.setDateValue(d);
+
+                            hasValue = true;
+                        }
+
+                        break;
+
+                    case "values":
+                        readFilterValues(key, json, qf.getValues());
+
+                        hasValue = true;
+
+                        break;
+
+                    default:
+                        json.skipValue();
+                }
+            }
+
+            json.endObject();
+
+            if (qf.getField() == null || qf.getField().isEmpty() || qf.getOperation() == null) {
+                throw malformed(key, "filter without a field or an operation");
+            }
+
+            if (qf.getOperation() == FilterOperation.ISNULL || qf.getOperation() == FilterOperation.ISNOTNULL) {
+
+                if (filterPredicate == null || filterPredicate.test(qf)) {
+                    unaryFilters.add(qf);
+                }
+            } else {
+
+                if (!hasValue) throw malformed(key, "filter '" + qf.getField() + "' without a value");
+
+                if (filterPredicate == null || filterPredicate.test(qf)) {
+                    binaryFilters.add(qf);
+                }
+            }
+        }
+
+        json.endArray();
+
+        unaryFilters.addAll(binaryFilters);
+
+        return unaryFilters;
+    }
+
+    private void readFilterValues(String key, JsonReader json, List<String> values) throws IOException {
+
+        Set<String> distinctValues = new HashSet<>();
+
+        int count = 0;
+
+        json.beginArray();
+
+        while (json.hasNext()) {
+
+            String e = json.nextValue();
+
+            if (e == null) continue;
+
+            checkLimit(key, "filter value", ++count, maxFilterValues);
+
+            if (distinctValues.add(e)) {
+                values.add(e);
+            }
+        }
+
+        json.endArray();
+    }
+
+    private QueryOrder buildOrder(String key, CharSequence value, int start, int end) {
+
+        int idxField = indexOfAny(value, ORDER_DELIMITERS, start, end);
+
+        if (idxField == start) {
+
+            String msg = "Value for '" + key + "' is malformed: '" + substring(value, start, end) + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
+        }
+
+        QueryOrder o = new QueryOrder();
+
+        if (idxField == -1) {
+
+            o.setField(substring(value, start, end));
+            o.setOrder(OrderDirection.ASC);
+
+            return o;
+        }
+
+        o.setField(substring(value, start, idxField));
+
+        int idxDirection = indexOfAny(value, ORDER_DELIMITERS, idxField + 1, end);
+
+        if (idxDirection == -1) idxDirection = end;
+
+        // Trailing delimiters are ignored, the same as with String.split
+        if (idxDirection == idxField + 1 && indexOfNone(value, ORDER_DELIMITERS, idxDirection, end) == -1) {
+
+            o.setOrder(OrderDirection.ASC);
+
+            return o;
+        }
+
+        o.setOrder(parseOrderDirection(key, substring(value, idxField + 1, idxDirection)));
+
+        return o;
+    }
+
+    private QueryFilter buildBinaryFilter(String key, CharSequence value, int[] parts) {
+
+        QueryFilter qf = new QueryFilter(substring(value, parts[0], parts[1]),
+                parseFilterOperation(key, substring(value, parts[2], parts[3])));
+
+        int start = parts[4];
+        int end = parts[5];
+
+        if (end - start >= 2 && value.charAt(start) == '[' && value.charAt(end - 1) == ']' &&
+                (qf.getOperation() == FilterOperation.IN ||
+                        qf.getOperation() == FilterOperation.NIN ||
+                        qf.getOperation() == FilterOperation.NINIC ||
+                        qf.getOperation() == FilterOperation.INIC)) {
+
+            Set<String> distinctValues = new HashSet<>();
+
+            Splitter values = new Splitter(value, start + 1, end - 1, LIST_DELIMITERS, true);
+
+            int count = 0;
+
+            while (values.next()) {
+
+                if (values.start == values.end) continue;
+
+                checkLimit(key, "filter value", ++count, maxFilterValues);
+
+                String e = substring(value, values.start, values.end);
+
+                if (distinctValues.add(e)) {
+                    qf.getValues().add(stripQuotes(e));
+                }
+            }
+
+        } else if (end - start > DATE_PREFIX.length() && startsWith(value, DATE_PREFIX, start) &&
+                value.charAt(end - 1) == '\'') {
+
+            Date d = parseDate(substring(value, start + DATE_PREFIX.length(), end - 1));
+
+            if (d == null) {
+
+                String msg = "Value for '" + key + "' is malformed: '" + value + "'";
+
+                log.finest(msg);
+
+                throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
+            }
+
+            qf.setDateValue(d);
+        } else {
+
+            qf.setValue(stripQuotes(substring(value, start, end)));
+        }
+
+        return qf;
+    }
+
+    private void checkLimit(String key, String element, int count, Integer max) {
+
+        if (max == null || count <= max) return;
+
+        String msg = "Value for '" + key + "' exceeds the maximum of " + max + " " + element + " entries";
+
+        log.finest(msg);
+
+        throw new QueryFormatException(msg, key, QueryFormatError.LIMIT_EXCEEDED);
+    }
+
+    private QueryFormatException malformed(String key, String value) {
+
+        String msg = "Value for '" + key + "' is malformed: '" + value + "'";
+
+        log.finest(msg);
+
+        return new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
+    }
+
+    private OrderDirection parseOrderDirection(String key, String value) {
+
+        try {
+
+            return OrderDirection.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+
+            String msg = "Constant in '" + key + "' does not exist: '" + value + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.NO_SUCH_CONSTANT);
+        }
+    }
+
+    private FilterOperation parseFilterOperation(String key, String value) {
+
+        value = value.toUpperCase();
+
+        try {
+
+            return FilterOperation.valueOf(value);
+        } catch (IllegalArgumentException e) {
+
+            String msg = "Constant in '" + key + "' does not exist: '" + value + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.NO_SUCH_CONSTANT);
+        }
+    }
+
+    /**
+     * Returns a key of the query, decoded when the query is URL encoded. A key that cannot be
+     * decoded is reported under its raw text.
+     */
+    private String token(CharSequence query, int start, int end, boolean encoded) {
+
+        return encoded ? decode(substring(query, start, end), query, start, end) : substring(query, start, end);
+    }
+
+    private String decode(String key, CharSequence value, int start, int end) {
+
+        String decoded = decodeUrl(value, start, end);
+
+        if (decoded == null) {
+
+            String msg = "Value for '" + key + "' is not properly URL encoded: '" +
+                    substring(value, start, end) + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
+        }
+
+        return decoded;
+    }
+
+    private Date parseDate(String date) {
+
+        try {
+            return Date.from(ZonedDateTime.parse(date).toInstant());
+        } catch (DateTimeParseException e) {
+
+            return null;
+        }
+    }
+
+    ///// Private helper methods
+
+    private static String stripQuotes(String value) {
+
+        int start = 0;
+        int end = value.length();
+
+        if (end > 0 && value.charAt(0) == '\'') start++;
+        if (end > start && value.charAt(end - 1) == '\'') end--;
+
+        return start == 0 && end == value.length() ? value : value.substring(start, end);
+    }
+
+    /**
+     * Decodes a range of an {@code application/x-www-form-urlencoded} string in a single pass, the
+     * same as {@link java.net.URLDecoder#decode(String, String)} with UTF-8. Ranges without escapes
+     * are returned without copying them twice. Returns {@code null} if an escape is malformed.
+     */
+    private static String decodeUrl(CharSequence value, int start, int end) {
+
+        int idxEscape = indexOfAny(value, "%+", start, end);
+
+        if (idxEscape == -1) return substring(value, start, end);
+
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(value, start, idxEscape);
+
+        byte[] bytes = null;
+
+        int i = idxEscape;
+
+        while (i < end) {
+
+            char c = value.charAt(i);
+
+            if (c == '+') {
+
+                sb.append(' ');
+                i++;
+            } else if (c == '%') {
+
+                if (bytes == null) bytes = new byte[(end - i) / 3];
+
+                int count = 0;
+
+                while (i + 2 < end && value.charAt(i) == '%') {
+
+                    int high = Character.digit(value.charAt(i + 1), 16);
+                    int low = Character.digit(value.charAt(i + 2), 16);
+
+                    if (high == -1 || low == -1) return null;
+
+                    bytes[count++] = (byte) ((high << 4) + low);
+                    i += 3;
+                }
+
+                if (i < end && value.charAt(i) == '%') return null;
+
+                sb.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+            } else {
+
+                sb.append(c);
+                i++;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String substring(CharSequence value, int start, int end) {
+
+        return value.subSequence(start, end).toString();
+    }
+
+    private static boolean startsWith(CharSequence value, String prefix, int start) {
+
+        for (int i = 0; i < prefix.length(); i++) {
+
+            if (value.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    private static int indexOf(CharSequence value, char c, int start, int end) {
+
+        for (int i = start; i < end; i++) {
+
+            if (value.charAt(i) == c) return i;
+        }
+
+        return -1;
+    }
+
+    private static int indexOfAny(CharSequence value, String chars, int start, int end) {
+
+        for (int i = start; i < end; i++) {
+
+            if (chars.indexOf(value.charAt(i)) != -1) return i;
+        }
+
+        return -1;
+    }
+
+    private static int indexOfNone(CharSequence value, String chars, int start, int end) {
+
+        for (int i = start; i < end; i++) {
+
+            if (chars.indexOf(value.charAt(i)) == -1) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Iterates over the tokens of a character range that are separated by runs of delimiters. Empty
+     * trailing tokens are skipped, the same as with {@link String#split(String)}.
+     * <p>
+     * When quote aware, delimiters are ignored while inside single quotes. A position is considered
+     * quoted when an odd number of quotes follows it in the range, which is why the scan starts from
+     * the parity of all the quotes in the range instead of from an unquoted state.
+     */
+    private static final class Splitter {
+
+        private final CharSequence source;
+        private final String delimiters;
+        private final boolean quoteAware;
+        private final int limit;
+
+        private int position;
+        private boolean quoted;
+
+        private int start;
+        private int end;
+
+        Splitter(CharSequence source, int start, int end, String delimiters, boolean quoteAware) {
+            this.source = source;
+            this.delimiters = delimiters;
+            this.quoteAware = quoteAware;
+            this.limit = end;
+            this.position = start;
+
+            if (quoteAware) {
+
+                for (int i = start; i < end; i++) {
+
+                    if (source.charAt(i) == '\'') quoted = !quoted;
+                }
+            }
+        }
+
+        boolean next() {
+
+            if (position >= limit) return false;
+
+            start = position;
+
+            while (position < limit) {
+
+                char c = source.charAt(position);
+
+                if (quoteAware && c == '\'') {
+                    quoted = !quoted;
+                } else if (!quoted && delimiters.indexOf(c) != -1) {
+                    break;
+                }
+
+                position++;
+            }
+
+            end = position;
+
+            while (position < limit && delimiters.indexOf(source.charAt(position)) != -1) {
+                position++;
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.tfaga.lynx.utils;
+
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryParameters;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Criteria query built for a shape of query parameters, with all filter and cursor values replaced
+ * by parameters. Creating a query from the template only binds the values of the given query
+ * parameters, so the providers see the same query for every query parameters of the same shape
+ * and can reuse their query plans and statements.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+final class QueryTemplate {
+
+    private final CriteriaQuery<?> query;
+    private final List<Binding> bindings;
+
+    private QueryTemplate(CriteriaQuery<?> query, List<Binding> bindings) {
+        this.query = query;
+        this.bindings = bindings;
+    }
+
+    TypedQuery<?> createQuery(EntityManager em, QueryParameters q) {
+
+        TypedQuery<?> tq = em.createQuery(query);
+
+        for (Binding binding : bindings) {
+            binding.bind(tq, q);
+        }
+
+        return tq;
+    }
+
+    /**
+     * Replaces the values with parameters while the criteria query is being built and records how
+     * to obtain the values of the parameters from the filters and cursors.
+     */
+    static final class Builder implements JPAUtils.ValueBinder {
+
+        private final List<Binding> bindings = new ArrayList<>();
+
+        @Override
+        public Expression<?> value(CriteriaBuilder cb, int filter, Object value,
+                                   Function<QueryFilter, Object> extractor) {
+
+            ParameterExpression<Object> parameter = parameter(cb, value);
+
+            bindings.add(new Binding(Collections.singletonList(parameter),
+                    q -> Collections.singletonList(extractor.apply(q.getFilters().get(filter)))));
+
+            return parameter;
+        }
+
+        @Override
+        public Predicate in(CriteriaBuilder cb, Expression<?> expression, int filter, List<Object> values,
+                            Function<QueryFilter, List<Object>> extractor) {
+
+            if (values.isEmpty()) return expression.in(values);
+
+            List<ParameterExpression<Object>> parameters = new ArrayList<>(values.size());
+
+            for (Object value : values) {
+                parameters.add(parameter(cb, value));
+            }
+
+            bindings.add(new Binding(parameters, q -> extractor.apply(q.getFilters().get(filter))));
+
+            return expression.in(parameters.toArray(new Expression[parameters.size()]));
+        }
+
+        @Override
+        public List<Expression<?>> values(CriteriaBuilder cb, List<Object> values,
+                                          Function<QueryParameters, List<Object>> extractor) {
+
+            List<ParameterExpression<Object>> parameters = new ArrayList<>(values.size());
+
+            for (Object value : values) {
+                parameters.add(parameter(cb, value));
+            }
+
+            bindings.add(new Binding(parameters, extractor));
+
+            return new ArrayList<>(parameters);
+        }
+
+        QueryTemplate build(CriteriaQuery<?> query) {
+            return new QueryTemplate(query, new ArrayList<>(bindings));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ParameterExpression<Object> parameter(CriteriaBuilder cb, Object value) {
+            return (ParameterExpression<Object>) cb.parameter(value.getClass());
+        }
+    }
+
+    private static final class Binding {
+
+        private final List<ParameterExpression<Object>> parameters;
+        private final Function<QueryParameters, List<Object>> values;
+
+        private Binding(List<ParameterExpression<Object>> parameters,
+                        Function<QueryParameters, List<Object>> values) {
+            this.parameters = parameters;
+            this.values = values;
+        }
+
+        private void bind(TypedQuery<?> tq, QueryParameters q) {
+
+            List<Object> values = this.values.apply(q);
+
+            if (values.size() != parameters.size())
+                throw new IllegalStateException("The query parameters do not match the shape of the query template");
+
+            for (int i = 0; i < parameters.size(); i++) {
+                tq.setParameter(parameters.get(i), values.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.tfaga.lynx.utils;
+
+import java.util.function.Function;
+
+/**
+ * Size bounded, least recently used cache of criteria query templates, keyed by the entity
+ * manager factory, the entity and the shape of the query parameters. The cache is safe for use by
+ * multiple threads. Building of a missing template happens outside of the lock, so concurrent
+ * misses for the same shape may build it more than once.
+ * <p>
+ * Templates reference the metamodel of their entity manager factory, so the templates of closed
+ * factories are removed on the next miss of the cache.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryTemplateCache {
+
+    private final LruCache<CacheKey, QueryTemplate> entries;
+
+    QueryTemplateCache(int maxSize) {
+        entries = new LruCache<>(maxSize, CacheKey::isClosed);
+    }
+
+    QueryTemplate get(CacheKey shape, Function<CacheKey, QueryTemplate> builder) {
+        return entries.get(shape, builder);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int getSize() {
+        return entries.getSize();
+    }
+
+    public int getMaxSize() {
+        return entries.getMaxSize();
+    }
+
+    public long getHits() {
+        return entries.getHits();
+    }
+
+    public long getMisses() {
+        return entries.getMisses();
+    }
+
+    public long getEvictions() {
+        return entries.getEvictions();
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.AddressEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.EntityDescriptor;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class EntityDescriptorTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testDescriptorIsCached() {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getEntityManagerFactory(), DocumentEntity.class);
+
+        Assert.assertSame(descriptor, EntityDescriptor.of(em.getMetamodel(), DocumentEntity.class));
+        Assert.assertSame(descriptor, EntityDescriptor.of(em.getMetamodel().entity(DocumentEntity.class)));
+        Assert.assertNotSame(descriptor, EntityDescriptor.of(em.getMetamodel(), AccountEntity.class));
+        Assert.assertEquals(DocumentEntity.class, descriptor.getEntity());
+    }
+
+    @Test
+    public void testIdAttributes() {
+
+        Assert.assertEquals("id", EntityDescriptor.of(em.getMetamodel(), AccountEntity.class).getIdAttribute());
+        Assert.assertEquals(Collections.singletonList("id"),
+                EntityDescriptor.of(em.getMetamodel(), DocumentEntity.class).getIdAttributes());
+    }
+
+    @Test
+    public void testAttributes() {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getMetamodel(), AccountEntity.class);
+
+        EntityDescriptor.AttributeDescriptor name = descriptor.getAttribute("name");
+
+        Assert.assertEquals(String.class, name.getJavaType());
+        Assert.assertEquals(Attribute.PersistentAttributeType.BASIC, name.getPersistentType());
+        Assert.assertFalse(name.isJoined());
+        Assert.assertFalse(name.isToMany());
+
+        EntityDescriptor.AttributeDescriptor documents = descriptor.getAttribute("documents");
+
+        Assert.assertEquals(DocumentEntity.class, documents.getJavaType());
+        Assert.assertEquals(Attribute.PersistentAttributeType.ONE_TO_MANY, documents.getPersistentType());
+        Assert.assertTrue(documents.isManaged());
+        Assert.assertTrue(documents.isJoined());
+        Assert.assertTrue(documents.isToMany());
+
+        EntityDescriptor.AttributeDescriptor address = descriptor.getAttribute("address");
+
+        Assert.assertEquals(AddressEntity.class, address.getJavaType());
+        Assert.assertTrue(address.isJoined());
+        Assert.assertFalse(address.isToMany());
+
+        Assert.assertEquals(String.class, descriptor.getAttribute(AddressEntity.class, "country").getJavaType());
+        Assert.assertEquals(AccountEntity.class,
+                descriptor.getAttribute(DocumentEntity.class, "account").getJavaType());
+        Assert.assertNull(descriptor.getAttribute("nope"));
+        Assert.assertNull(descriptor.getAttribute(String.class, "length"));
+        Assert.assertEquals(descriptor.getAttributes().size(),
+                em.getMetamodel().entity(AccountEntity.class).getAttributes().size());
+    }
+
+    @Test
+    public void testNullable() {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getMetamodel(), DocumentEntity.class);
+
+        Assert.assertFalse(descriptor.getAttribute("id").isNullable());
+        Assert.assertFalse(descriptor.getAttribute("primitiveInteger").isNullable());
+        Assert.assertTrue(descriptor.getAttribute("objectInteger").isNullable());
+        Assert.assertTrue(descriptor.getAttribute("objectEnum").isNullable());
+        Assert.assertFalse(descriptor.getAttribute(AccountEntity.class, "name").isNullable());
+        Assert.assertFalse(descriptor.getAttribute(AddressEntity.class, "country").isNullable());
+    }
+
+    @Test
+    public void testFilterOperations() {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getMetamodel(), DocumentEntity.class);
+
+        Assert.assertEquals(EnumSet.allOf(FilterOperation.class),
+                descriptor.getAttribute("string").getFilterOperations());
+
+        Assert.assertEquals(EnumSet.complementOf(EnumSet.of(FilterOperation.LIKE, FilterOperation.LIKEIC)),
+                descriptor.getAttribute("objectCharacter").getFilterOperations());
+
+        Assert.assertEquals(EnumSet.of(FilterOperation.EQ, FilterOperation.NEQ, FilterOperation.IN,
+                FilterOperation.NIN, FilterOperation.ISNULL, FilterOperation.ISNOTNULL, FilterOperation.GT,
+                FilterOperation.GTE, FilterOperation.LT, FilterOperation.LTE),
+                descriptor.getAttribute("primitiveInteger").getFilterOperations());
+
+        Assert.assertFalse(descriptor.getAttribute("customObject").supports(FilterOperation.GT));
+        Assert.assertTrue(descriptor.getAttribute("customObject").supports(FilterOperation.EQ));
+        Assert.assertTrue(descriptor.getAttribute("account").getFilterOperations().isEmpty());
+    }
+
+    @Test
+    public void testPaths() {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getMetamodel(), DocumentEntity.class);
+
+        EntityDescriptor.AttributePath country = descriptor.getPath("account.address.country");
+
+        Assert.assertTrue(country.exists());
+        Assert.assertFalse(country.isToMany());
+        Assert.assertEquals(3, country.getAttributes().size());
+        Assert.assertEquals("account", country.getAttributes().get(0).getName());
+        Assert.assertEquals("country", country.getAttribute().getName());
+        Assert.assertSame(country, descriptor.getPath("account.address.country"));
+
+        EntityDescriptor.AttributePath documents = descriptor.getPath("account.documents.string");
+
+        Assert.assertTrue(documents.isToMany());
+        Assert.assertEquals(String.class, documents.getAttribute().getJavaType());
+    }
+
+    @Test
+    public void testUnknownPaths() {
+
+        EntityDescriptor descriptor = EntityDescriptor.of(em.getMetamodel(), DocumentEntity.class);
+
+        for (String path : Arrays.asList("nope", "account.nope", "string.length", "account.", "", ".string")) {
+
+            EntityDescriptor.AttributePath unknown = descriptor.getPath(path);
+
+            Assert.assertFalse(path, unknown.exists());
+            Assert.assertNull(path, unknown.getAttribute());
+            Assert.assertTrue(path, unknown.getAttributes().isEmpty());
+            Assert.assertSame(path, unknown, descriptor.getPath(path));
+        }
+    }
+
+    @Test
+    public void testUnsupportedOperationsAreIgnored() {
+
+        List<DocumentEntity> all = JPAUtils.queryEntities(em, DocumentEntity.class);
+
+        Assert.assertEquals(all.size(), JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("filter=primitiveInteger:like:1%").build()).size());
+        Assert.assertEquals(all.size(), JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("filter=customObject:gt:x").build()).size());
+    }
+
+    @Test
+    public void testPathThroughBasicAttribute() {
+
+        try {
+
+            JPAUtils.queryEntities(em, DocumentEntity.class, QueryParameters.query("filter=string.length:eq:1")
+                    .build());
+            Assert.fail("No exception was thrown");
+        } catch (NoSuchEntityFieldException e) {
+
+            Assert.assertEquals("string.length", e.getField());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.exceptions.InvalidEntityFieldException;
+import com.github.tfaga.lynx.exceptions.InvalidFieldValueException;
+import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.EntityDescriptor;
+import com.github.tfaga.lynx.utils.EntitySchema;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import com.github.tfaga.lynx.utils.QueryStringDefaults;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class EntitySchemaTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testSchemaIsCached() {
+
+        EntitySchema schema = EntitySchema.of(em.getEntityManagerFactory(), DocumentEntity.class);
+
+        Assert.assertSame(schema, EntitySchema.of(em.getMetamodel(), DocumentEntity.class));
+        Assert.assertNotSame(schema, EntitySchema.of(em.getMetamodel(), AccountEntity.class));
+        Assert.assertEquals(DocumentEntity.class, schema.getEntity());
+    }
+
+    @Test
+    public void testResolvedPathsAreBounded() {
+
+        EntitySchema schema = EntitySchema.of(em.getMetamodel(), AccountEntity.class);
+
+        StringBuilder path = new StringBuilder("documents.account");
+
+        for (int i = 0; i < 600; i++) {
+
+            schema.validate(QueryParameters.query("filter=" + path + ".id:gte:0").build());
+
+            path.append(".documents.account");
+
+            try {
+
+                schema.validate(QueryParameters.query("filter=" + path + ".nope:eq:1").build());
+                Assert.fail("No exception was thrown");
+            } catch (NoSuchEntityFieldException e) {
+
+                Assert.assertEquals(path + ".nope", e.getField());
+            }
+        }
+
+        Assert.assertEquals(1024, EntityDescriptor.of(em.getMetamodel(), AccountEntity.class).getPathCacheSize());
+    }
+
+    @Test
+    public void testValidQuery() {
+
+        String query = "limit=5&order=account.name DESC,string&fields=string,uuid&filter=string:likeic:c% " +
+                "objectEnum:in:[FIRST,SECOND] uuid:isnotnull utilDate:gte:dt'2017-01-01T00:00:00Z' " +
+                "primitiveInteger:gt:3 account.address.country:neq:x id.key:lt:40";
+
+        QueryParameters validated = QueryParameters.query(query).schema(schema()).build();
+
+        Assert.assertEquals(ImmutableQueryParameters.copyOf(QueryParameters.query(query).build()),
+                ImmutableQueryParameters.copyOf(validated));
+
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class, validated);
+
+        Assert.assertNotNull(documents);
+
+        EntitySchema.of(em.getMetamodel(), AccountEntity.class)
+                .validate(QueryParameters.query("filter=documents.string:isnotnull documents.account.id:gte:0").build());
+    }
+
+    @Test
+    public void testNoSuchField() {
+
+        assertNoSuchField("filter=nope:eq:1", "nope");
+        assertNoSuchField("filter=account.nope:eq:1", "account.nope");
+        assertNoSuchField("filter=string.length:eq:1", "string.length");
+        assertNoSuchField("filter=account.:eq:1", "account.");
+        assertNoSuchField("order=nope", "nope");
+        assertNoSuchField("order=account.address.city DESC", "account.address.city");
+        assertNoSuchField("fields=string,nope", "nope");
+    }
+
+    @Test
+    public void testInvalidValue() {
+
+        assertInvalidValue("filter=uuid:eq:not-a-uuid", "uuid", "not-a-uuid");
+        assertInvalidValue("filter=objectEnum:in:[FIRST,THIRD]", "objectEnum", "THIRD");
+        assertInvalidValue("filter=localDate:gt:'yesterday'", "localDate", "yesterday");
+    }
+
+    @Test
+    public void testUnsupportedOperation() {
+
+        assertInvalidValue("filter=primitiveInteger:like:1%", "primitiveInteger", "1%");
+        assertInvalidValue("filter=uuid:eqic:x", "uuid", "x");
+        assertInvalidValue("filter=customObject:gt:x", "customObject", "x");
+        assertInvalidValue("filter=string:eq:dt'2017-01-01T00:00:00Z'", "string", "2017-01-01T00:00:00Z");
+    }
+
+    @Test
+    public void testInvalidField() {
+
+        try {
+
+            QueryParameters.query("filter=account:isnull").schema(schema()).build();
+            Assert.fail("No exception was thrown");
+        } catch (InvalidEntityFieldException e) {
+
+            Assert.assertEquals("account", e.getField());
+            Assert.assertEquals("DocumentEntity", e.getEntity());
+        }
+
+        try {
+
+            EntitySchema.of(em.getMetamodel(), AccountEntity.class)
+                    .validate(QueryParameters.query("order=documents.string").build());
+            Assert.fail("No exception was thrown");
+        } catch (InvalidEntityFieldException e) {
+
+            Assert.assertEquals("documents.string", e.getField());
+        }
+    }
+
+    @Test
+    public void testDefaultsSchema() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults().schema(schema());
+
+        Assert.assertEquals(1, qsd.queryEncoded("filter=string:eq:Carol").getFilters().size());
+        Assert.assertEquals(1, qsd.parser().parseJson("{\"fields\": [\"string\"]}").getFields().size());
+
+        try {
+
+            qsd.queryEncoded("filter=strin:eq:Carol");
+            Assert.fail("No exception was thrown");
+        } catch (NoSuchEntityFieldException e) {
+
+            Assert.assertEquals("strin", e.getField());
+        }
+
+        Assert.assertEquals(1, qsd.schema(null).queryEncoded("filter=strin:eq:Carol").getFilters().size());
+    }
+
+    private EntitySchema schema() {
+        return EntitySchema.of(em.getEntityManagerFactory(), DocumentEntity.class);
+    }
+
+    private void assertNoSuchField(String query, String field) {
+
+        try {
+
+            QueryParameters.query(query).schema(schema()).build();
+            Assert.fail("No exception was thrown for: " + query);
+        } catch (NoSuchEntityFieldException e) {
+
+            Assert.assertEquals(field, e.getField());
+            Assert.assertEquals("DocumentEntity", e.getEntity());
+        }
+    }
+
+    private void assertInvalidValue(String query, String field, String value) {
+
+        try {
+
+            QueryParameters.query(query).schema(schema()).build();
+            Assert.fail("No exception was thrown for: " + query);
+        } catch (InvalidFieldValueException e) {
+
+            Assert.assertEquals(field, e.getField());
+            Assert.assertEquals(value, e.getValue());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class ImmutableQueryParametersTest {
+
+    private static final String QUERY = "limit=20&offset=40&order=name DESC,id&fields=name,id&" +
+            "filter=name:in:[a,'b c'] createdAt:gte:dt'2014-11-26T11:15:08Z' email:isnull";
+
+    @Test
+    public void testBuildImmutable() {
+
+        ImmutableQueryParameters query = QueryParameters.query(QUERY).buildImmutable();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+        Assert.assertEquals(40, query.getOffset().longValue());
+        Assert.assertEquals(2, query.getOrder().size());
+        Assert.assertEquals("name", query.getOrder().get(0).getField());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertEquals(2, query.getFields().size());
+        Assert.assertEquals(3, query.getFilters().size());
+        Assert.assertEquals(FilterOperation.ISNULL, query.getFilters().get(0).getOperation());
+        Assert.assertEquals("b c", query.getFilters().get(1).getValues().get(1));
+        Assert.assertEquals(Date.from(java.time.Instant.parse("2014-11-26T11:15:08Z")),
+                query.getFilters().get(2).getDateValue());
+    }
+
+    @Test
+    public void testEquality() {
+
+        ImmutableQueryParameters query = QueryParameters.query(QUERY).buildImmutable();
+        ImmutableQueryParameters same = QueryParameters.query(QUERY).buildImmutable();
+
+        Assert.assertEquals(query, same);
+        Assert.assertEquals(query.hashCode(), same.hashCode());
+
+        ImmutableQueryParameters differentDirection = QueryParameters
+                .query(QUERY.replace("name DESC", "name ASC")).buildImmutable();
+
+        Assert.assertNotEquals(query, differentDirection);
+
+        ImmutableQueryParameters differentValue = QueryParameters
+                .query(QUERY.replace("'b c'", "'b d'")).buildImmutable();
+
+        Assert.assertNotEquals(query, differentValue);
+
+        ImmutableQueryParameters after = QueryParameters.query(QUERY + "&after=AQAAAAEC").buildImmutable();
+
+        Assert.assertNotEquals(query, after);
+        Assert.assertNotEquals(after, QueryParameters.query(QUERY + "&before=AQAAAAEC").buildImmutable());
+        Assert.assertEquals(after, QueryParameters.query(QUERY + "&after=AQAAAAEC").buildImmutable());
+    }
+
+    @Test
+    public void testCopyOf() {
+
+        QueryParameters q = QueryParameters.query(QUERY).build();
+
+        ImmutableQueryParameters query = ImmutableQueryParameters.copyOf(q);
+
+        q.getFilters().clear();
+        q.getOrder().get(0).setOrder(OrderDirection.ASC);
+
+        Assert.assertEquals(3, query.getFilters().size());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertSame(query, ImmutableQueryParameters.copyOf(query));
+    }
+
+    @Test
+    public void testDateValueIsCopied() {
+
+        ImmutableQueryParameters query = QueryParameters.query(QUERY).buildImmutable();
+
+        Date date = query.getFilters().get(2).getDateValue();
+        date.setTime(0);
+
+        Assert.assertNotEquals(0, query.getFilters().get(2).getDateValue().getTime());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetLimit() {
+
+        QueryParameters.query(QUERY).buildImmutable().setLimit(10L);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetAfter() {
+
+        QueryParameters.query(QUERY).buildImmutable().setAfter("AQAAAAEC");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModifyFilters() {
+
+        QueryParameters.query(QUERY).buildImmutable().getFilters().add(new QueryFilter());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModifyFilter() {
+
+        QueryParameters.query(QUERY).buildImmutable().getFilters().get(0).setField("email");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModifyFilterValues() {
+
+        QueryParameters.query(QUERY).buildImmutable().getFilters().get(1).getValues().set(0, "c");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModifyOrder() {
+
+        QueryParameters.query(QUERY).buildImmutable().getOrder().add(new QueryOrder());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModifyFields() {
+
+        QueryParameters.query(QUERY).buildImmutable().getFields().remove(0);
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+
+        ImmutableQueryParameters query = QueryParameters.query(QUERY).buildImmutable();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(query);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+
+            Assert.assertEquals(query, in.readObject());
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.AddressEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.CountCache;
+import com.github.tfaga.lynx.utils.CountCacheListener;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsCountCacheTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    private CountCache cache;
+
+    @Before
+    public void enableCache() {
+
+        JPAUtils.setCountCache(16, 1, TimeUnit.MINUTES);
+
+        cache = JPAUtils.getCountCache();
+    }
+
+    @After
+    public void disableCache() {
+
+        JPAUtils.setCountCache(0, 1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void testCachedCount() {
+
+        Assert.assertEquals(16, cache.getMaxSize());
+        Assert.assertEquals(60, cache.getTtl(TimeUnit.SECONDS));
+
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class).longValue());
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class).longValue());
+
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getHits());
+
+        Long count = count("filter=value:gte:20 name:neq:Caryl");
+
+        Assert.assertEquals(count, count("filter=name:neq:Caryl value:gte:20 value:gte:20"));
+        Assert.assertEquals(count, JPAUtils.queryPage(em, AccountEntity.class,
+                QueryParameters.query("filter=value:gte:20 name:neq:Caryl&limit=1").build()).getTotal());
+
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(3, cache.getHits());
+
+        Assert.assertNotEquals(count, count("filter=value:gte:40 name:neq:Caryl"));
+
+        Assert.assertEquals(3, cache.getMisses());
+        Assert.assertEquals(3, cache.getSize());
+
+        JPAUtils.setCountCache(0, 1, TimeUnit.MINUTES);
+
+        Assert.assertNull(JPAUtils.getCountCache());
+        Assert.assertEquals(count, count("filter=value:gte:20 name:neq:Caryl"));
+    }
+
+    @Test
+    public void testCustomFilterIsNotCached() {
+
+        Long count = JPAUtils.queryEntitiesCount(em, AccountEntity.class, new QueryParameters(),
+                (p, cb, r) -> cb.and(p, cb.lessThan(r.get("id"), 20)));
+
+        Assert.assertEquals(19, count.longValue());
+        Assert.assertEquals(0, cache.getMisses());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        count("filter=name:neq:Caryl");
+        JPAUtils.queryEntitiesCount(em, DocumentEntity.class);
+        JPAUtils.queryEntitiesCount(em, DocumentEntity.class, QueryParameters.query("filter=account.value:gte:20")
+                .build());
+
+        Assert.assertEquals(3, cache.getSize());
+
+        // Counts of documents that join accounts are invalidated too
+        new CountCacheListener().invalidate(new AccountEntity());
+
+        Assert.assertEquals(1, cache.getSize());
+        Assert.assertEquals(2, cache.getInvalidations());
+
+        count("filter=documents.primitiveInteger:gte:0");
+
+        JPAUtils.invalidateCountCache(DocumentEntity.class);
+
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(4, cache.getInvalidations());
+
+        count("filter=name:neq:Caryl");
+
+        Assert.assertEquals(5, cache.getMisses());
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testExpiredCount() throws Exception {
+
+        JPAUtils.setCountCache(16, 1, TimeUnit.MILLISECONDS);
+
+        cache = JPAUtils.getCountCache();
+
+        Long count = count("filter=value:gte:20");
+
+        Thread.sleep(5);
+
+        Assert.assertEquals(count, count("filter=value:gte:20"));
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testStaleUntilTtlAfterCommit() throws Exception {
+
+        JPAUtils.setCountCache(16, 500, TimeUnit.MILLISECONDS);
+
+        EntityManager writer = em.getEntityManagerFactory().createEntityManager();
+
+        try {
+
+            writer.getTransaction().begin();
+
+            AccountEntity account = new AccountEntity();
+            account.setId(1000);
+            account.setName("Stale");
+            account.setValue(0);
+            account.setSize(0);
+            account.setAddress(new AddressEntity());
+            account.getAddress().setCountry("Slovenia");
+
+            writer.persist(account);
+
+            // The listener invalidates the counts at the flush, before the commit
+            writer.flush();
+
+            Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class).longValue());
+
+            writer.getTransaction().commit();
+
+            long committed = System.nanoTime();
+
+            Long count = JPAUtils.queryEntitiesCount(em, AccountEntity.class);
+
+            if (System.nanoTime() - committed < TimeUnit.MILLISECONDS.toNanos(500)) {
+                Assert.assertEquals(50, count.longValue());
+            }
+
+            Thread.sleep(600);
+
+            Assert.assertEquals(51, JPAUtils.queryEntitiesCount(em, AccountEntity.class).longValue());
+        } finally {
+
+            if (writer.getTransaction().isActive()) {
+                writer.getTransaction().rollback();
+            }
+
+            writer.getTransaction().begin();
+
+            AccountEntity account = writer.find(AccountEntity.class, 1000);
+
+            if (account != null) {
+                writer.remove(account);
+            }
+
+            writer.getTransaction().commit();
+            writer.close();
+        }
+
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class).longValue());
+    }
+
+    @Test
+    public void testClosedFactoryIsRemoved() {
+
+        EntityManagerFactory emf = JpaUtil.getInstance().createEntityManagerFactory(em, "lynx-counts");
+        EntityManager other = emf.createEntityManager();
+
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(other, AccountEntity.class).longValue());
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class).longValue());
+
+        // The factories have counts of their own
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertEquals(2, cache.getMisses());
+
+        other.close();
+        emf.close();
+
+        count("filter=value:gte:20");
+
+        // The miss removed the count of the closed factory
+        Assert.assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void testEviction() {
+
+        JPAUtils.setCountCache(2, 1, TimeUnit.MINUTES);
+
+        cache = JPAUtils.getCountCache();
+
+        for (int value = 0; value < 5; value++) {
+            count("filter=value:gte:" + value);
+        }
+
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertEquals(3, cache.getEvictions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTtl() {
+
+        JPAUtils.setCountCache(16, 0, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void testConcurrentCountsAndInvalidations() throws Exception {
+
+        List<String> queries = Arrays.asList("filter=value:gte:20", "filter=name:neq:Caryl",
+                "filter=documents.primitiveInteger:gte:50", "");
+
+        List<Long> expected = new ArrayList<>();
+
+        for (String query : queries) {
+            expected.add(count(query));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < 4; t++) {
+
+                int thread = t;
+
+                futures.add(executor.submit(() -> {
+
+                    EntityManager threadEm = em.getEntityManagerFactory().createEntityManager();
+
+                    try {
+
+                        for (int i = 0; i < 50; i++) {
+
+                            int n = (i + thread) % queries.size();
+
+                            Assert.assertEquals(expected.get(n), JPAUtils.queryEntitiesCount(threadEm,
+                                    AccountEntity.class, QueryParameters.query(queries.get(n)).build()));
+
+                            if (i % 7 == thread) {
+                                JPAUtils.invalidateCountCache(i % 2 == 0 ? AccountEntity.class : DocumentEntity.class);
+                            }
+                        }
+                    } finally {
+                        threadEm.close();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(cache.getSize() <= queries.size());
+    }
+
+    private Long count(String query) {
+        return JPAUtils.queryEntitiesCount(em, AccountEntity.class, QueryParameters.query(query).build());
+    }
+}
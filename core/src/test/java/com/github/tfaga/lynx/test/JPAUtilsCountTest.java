@@ -4,6 +4,7 @@ import com.github.tfaga.lynx.beans.QueryFilter;
 import com.github.tfaga.lynx.beans.QueryParameters;
 import com.github.tfaga.lynx.enums.FilterOperation;
 import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
 import com.github.tfaga.lynx.test.utils.JpaUtil;
 import com.github.tfaga.lynx.utils.JPAUtils;
 import org.junit.Assert;
@@ -71,4 +72,78 @@ public class JPAUtilsCountTest {
         Assert.assertNotNull(count);
         Assert.assertEquals((long)2, count.longValue());
     }
+
+    @Test
+    public void testImmutableQueryCount() {
+
+        QueryParameters q = QueryParameters.query("filter=name:in:[Caryl,Jarred,Hamlin,Retha] " +
+                "address.country:like:C%").buildImmutable();
+
+        Long count = JPAUtils.queryEntitiesCount(em, AccountEntity.class, q);
+
+        Assert.assertNotNull(count);
+        Assert.assertEquals((long)2, count.longValue());
+        Assert.assertEquals(2, JPAUtils.queryEntities(em, AccountEntity.class, q).size());
+    }
+
+    @Test
+    public void testCappedCount() {
+
+        QueryParameters all = new QueryParameters();
+
+        Assert.assertEquals(11, JPAUtils.queryEntitiesCount(em, AccountEntity.class, all, 10).longValue());
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class, all, 50).longValue());
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class, all, 1000).longValue());
+        Assert.assertEquals(1, JPAUtils.queryEntitiesCount(em, AccountEntity.class, all, 0).longValue());
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class, all, Long.MAX_VALUE)
+                .longValue());
+
+        QueryParameters q = QueryParameters.query("filter=name:in:[Caryl,Jarred,Hamlin,Retha]&limit=1&offset=1")
+                .build();
+
+        long count = JPAUtils.queryEntitiesCount(em, AccountEntity.class, q);
+
+        Assert.assertEquals(count, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q, count).longValue());
+        Assert.assertEquals(count, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q, count - 1).longValue());
+        Assert.assertEquals(1, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q,
+                (p, cb, r) -> cb.and(p, cb.equal(r.get("name"), "Caryl")), 5).longValue());
+    }
+
+    @Test
+    public void testCappedCountOfToManyFilter() {
+
+        QueryParameters q = QueryParameters.query("filter=documents.primitiveInteger:gte:0").build();
+
+        long count = JPAUtils.queryEntitiesCount(em, AccountEntity.class, q);
+
+        Assert.assertEquals(count, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q, 100).longValue());
+
+        // Documents with an embedded id are distinct over all of its attributes
+        QueryParameters documents = QueryParameters.query("filter=account.documents.primitiveInteger:gte:0").build();
+
+        count = JPAUtils.queryEntitiesCount(em, DocumentEntity.class, documents);
+
+        Assert.assertEquals(count, JPAUtils.queryEntitiesCount(em, DocumentEntity.class, documents, 1000).longValue());
+        Assert.assertEquals(6, JPAUtils.queryEntitiesCount(em, DocumentEntity.class, documents, 5).longValue());
+    }
+
+    @Test
+    public void testExists() {
+
+        Assert.assertTrue(JPAUtils.exists(em, AccountEntity.class, new QueryParameters()));
+        Assert.assertTrue(JPAUtils.exists(em, AccountEntity.class,
+                QueryParameters.query("filter=name:eq:Caryl&offset=1000").build()));
+        Assert.assertFalse(JPAUtils.exists(em, AccountEntity.class,
+                QueryParameters.query("filter=name:eq:Nobody").build()));
+        Assert.assertFalse(JPAUtils.exists(em, AccountEntity.class, QueryParameters.query("filter=name:eq:Caryl").build(),
+                (p, cb, r) -> cb.and(p, cb.lessThan(r.get("id"), 0))));
+        Assert.assertTrue(JPAUtils.exists(em, DocumentEntity.class,
+                QueryParameters.query("filter=account.documents.primitiveInteger:gte:0").build()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCap() {
+
+        JPAUtils.queryEntitiesCount(em, AccountEntity.class, new QueryParameters(), -1);
+    }
 }
@@ -3,7 +3,9 @@ package com.github.tfaga.lynx.test;
 import com.github.tfaga.lynx.beans.QueryParameters;
 import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
 import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
 import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.EntityProjector;
 import com.github.tfaga.lynx.utils.JPAUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -103,6 +105,51 @@ public class JPAUtilsFieldsTest {
         Assert.assertNull(accounts.get(49).getName());
     }
 
+    @Test
+    public void testPrimitiveAndConvertedFields() {
+
+        QueryParameters q = QueryParameters.query("fields=primitiveInteger,string,localDate,customObject" +
+                "&order=id.key").build();
+
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class, q);
+        List<DocumentEntity> expected = JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("order=id.key").build());
+
+        Assert.assertEquals(expected.size(), documents.size());
+
+        for (int i = 0; i < documents.size(); i++) {
+
+            Assert.assertEquals(expected.get(i).getId().getKey(), documents.get(i).getId().getKey());
+            Assert.assertEquals(expected.get(i).getPrimitiveInteger(), documents.get(i).getPrimitiveInteger());
+            Assert.assertEquals(expected.get(i).getString(), documents.get(i).getString());
+            Assert.assertEquals(expected.get(i).getLocalDate(), documents.get(i).getLocalDate());
+            Assert.assertEquals(expected.get(i).getCustomObject() == null ? null :
+                    expected.get(i).getCustomObject().getValue(), documents.get(i).getCustomObject() == null ?
+                    null : documents.get(i).getCustomObject().getValue());
+            Assert.assertNull(documents.get(i).getUuid());
+        }
+    }
+
+    @Test
+    public void testProjectorIsCached() {
+
+        QueryParameters q = QueryParameters.query("fields=value,name").build();
+
+        List<AccountEntity> first = JPAUtils.queryEntities(em, AccountEntity.class, q);
+        List<AccountEntity> second = JPAUtils.queryEntities(em, AccountEntity.class, q);
+
+        Assert.assertEquals(first.size(), second.size());
+        Assert.assertEquals(first.get(0).getName(), second.get(0).getName());
+        Assert.assertEquals(first.get(0).getValue(), second.get(0).getValue());
+
+        EntityProjector<AccountEntity> projector = EntityProjector.of(AccountEntity.class,
+                Arrays.asList("value", "name", "id"));
+
+        Assert.assertSame(projector, EntityProjector.of(AccountEntity.class, Arrays.asList("value", "name", "id")));
+        Assert.assertNotSame(projector, EntityProjector.of(AccountEntity.class, Arrays.asList("name", "id")));
+        Assert.assertEquals(Arrays.asList("value", "name", "id"), projector.getFields());
+    }
+
     // Currently unsupported
     @Test(expected = NoSuchEntityFieldException.class)
     public void testEmbeddedField() {
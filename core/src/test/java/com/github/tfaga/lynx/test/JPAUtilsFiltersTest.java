@@ -3168,4 +3168,49 @@ public class JPAUtilsFiltersTest {
         Assert.assertNotNull(accounts.get(12).getAddress().getCountry());
         Assert.assertEquals("China", accounts.get(12).getAddress().getCountry());
     }
+
+    @Test
+    public void testDateLiteralFilters() {
+
+        assertSameResults("utilDate:eq:dt'2017-05-07T03:06:47Z'", "utilDate:eq:'2017-05-07T03:06:47Z'", 1);
+        assertSameResults("utilDate:gte:dt'2018-01-01T00:00:00Z'", "utilDate:gte:'2018-01-01T00:00:00Z'", -1);
+        assertSameResults("instant:lt:dt'2017-06-01T00:00:00Z'", "instant:lt:'2017-06-01T00:00:00Z'", -1);
+        assertSameResults("sqlTimestamp:gt:dt'2017-10-01T00:00:00Z'", "sqlTimestamp:gt:'2017-10-01T00:00:00Z'", -1);
+        assertSameResults("localDate:lte:dt'2017-07-01T00:00:00Z'", "localDate:lte:'2017-07-01'", -1);
+        assertSameResults("localDateTime:neq:dt'2017-09-21T10:38:19Z'", "localDateTime:neq:'2017-09-21T10:38:19'", -1);
+    }
+
+    @Test
+    public void testImmutableTypedValues() {
+
+        QueryParameters q = QueryParameters.query("filter=objectInteger:in:[30,60,25] utilDate:gte:dt'2018-01-01T00:00:00Z'")
+                .buildImmutable();
+
+        List<DocumentEntity> first = JPAUtils.queryEntities(em, DocumentEntity.class, q);
+        List<DocumentEntity> second = JPAUtils.queryEntities(em, DocumentEntity.class, q);
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("filter=objectInteger:in:[30,60,25] utilDate:gte:'2018-01-01T00:00:00Z'").build()),
+                first);
+    }
+
+    private void assertSameResults(String dateFilter, String valueFilter, int expected) {
+
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("filter=" + dateFilter).build());
+
+        List<DocumentEntity> expectedDocuments = JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("filter=" + valueFilter).build());
+
+        Assert.assertNotNull(documents);
+        Assert.assertEquals(expectedDocuments, documents);
+        Assert.assertTrue(documents.size() < 100);
+
+        if (expected >= 0) {
+            Assert.assertEquals(expected, documents.size());
+        } else {
+            Assert.assertTrue(documents.size() > 0);
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.test.utils.SqlUtil;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsJoinsTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testFiltersAndOrderShareJoin() {
+
+        QueryParameters q = QueryParameters.query("filter=account.name:neq:Nobody account.value:gte:0 " +
+                "account.address.country:isnotnull&order=account.name,account.address.country DESC").build();
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<DocumentEntity> cq = cb.createQuery(DocumentEntity.class);
+        Root<DocumentEntity> r = cq.from(DocumentEntity.class);
+
+        cq.select(r).where(JPAUtils.createWhereQuery(cb, r, q)).orderBy(JPAUtils.createOrderQuery(cb, r, q, "id"));
+
+        String sql = SqlUtil.getSql(em, em.createQuery(cq));
+
+        Assert.assertEquals(sql, 1, SqlUtil.countTable(sql, "accounts"));
+        Assert.assertEquals(sql, 1, SqlUtil.countTable(sql, "documents"));
+
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class, q);
+
+        Assert.assertEquals(em.createQuery(cq).getResultList(), documents);
+
+        for (int i = 1; i < documents.size(); i++) {
+
+            Assert.assertTrue(documents.get(i - 1).getAccount().getName()
+                    .compareTo(documents.get(i).getAccount().getName()) <= 0);
+        }
+    }
+
+    @Test
+    public void testToManyFiltersJoinSeparately() {
+
+        QueryParameters q = QueryParameters.query("filter=documents.string:isnotnull " +
+                "documents.primitiveInteger:gte:0 documents.account.name:isnotnull").build();
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<AccountEntity> cq = cb.createQuery(AccountEntity.class);
+        Root<AccountEntity> r = cq.from(AccountEntity.class);
+
+        cq.select(r).where(JPAUtils.createWhereQuery(cb, r, q)).distinct(true);
+
+        String sql = SqlUtil.getSql(em, em.createQuery(cq));
+
+        Assert.assertEquals(sql, 3, SqlUtil.countTable(sql, "documents"));
+        Assert.assertEquals(sql, 2, SqlUtil.countTable(sql, "accounts"));
+
+        Assert.assertEquals(em.createQuery(cq).getResultList().size(),
+                JPAUtils.queryEntitiesCount(em, AccountEntity.class, q).longValue());
+    }
+
+    @Test
+    public void testToManySubqueriesMatchJoins() {
+
+        Assert.assertTrue(JPAUtils.isToManySubqueries());
+
+        for (String query : Arrays.asList("filter=documents.primitiveInteger:gte:0",
+                "filter=documents.string:isnotnull documents.primitiveInteger:lt:50 value:gte:10&order=name",
+                "filter=documents.account.name:like:C% documents.objectInteger:isnull&order=value DESC&limit=5",
+                "filter=documents.string:neq:Nobody name:neq:Caryl&order=size,id&offset=10&limit=7",
+                "filter=documents.primitiveInteger:in:[1,2,3,4,5,6,7,8,9,10]&fields=name,value",
+                "filter=documents.primitiveInteger:eq")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            List<AccountEntity> subqueries = JPAUtils.queryEntities(em, AccountEntity.class, q);
+            Long subqueriesCount = JPAUtils.queryEntitiesCount(em, AccountEntity.class, q);
+            Long subqueriesCapped = JPAUtils.queryEntitiesCount(em, AccountEntity.class, q, 3);
+
+            JPAUtils.setToManySubqueries(false);
+
+            try {
+
+                List<AccountEntity> joins = JPAUtils.queryEntities(em, AccountEntity.class, q);
+
+                // Without an order the distinct entities of the join come in any order
+                if (q.getOrder().isEmpty()) {
+
+                    joins.sort(Comparator.comparing(AccountEntity::getId));
+                    subqueries.sort(Comparator.comparing(AccountEntity::getId));
+                }
+
+                Assert.assertEquals(query, ids(joins), ids(subqueries));
+                Assert.assertEquals(query, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q), subqueriesCount);
+                Assert.assertEquals(query, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q, 3),
+                        subqueriesCapped);
+            } finally {
+
+                JPAUtils.setToManySubqueries(true);
+            }
+        }
+    }
+
+    @Test
+    public void testToManyFiltersMatchDifferentElements() {
+
+        // Each filter can hold for a different document of an account
+        QueryParameters q = QueryParameters.query("filter=documents.primitiveInteger:lt:50 " +
+                "documents.primitiveLong:gte:50&order=id").build();
+
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class);
+
+        List<Integer> expected = documents.stream().filter(d -> d.getPrimitiveInteger() < 50)
+                .map(d -> d.getAccount().getId()).distinct()
+                .filter(id -> documents.stream().anyMatch(d -> d.getAccount().getId().equals(id) &&
+                        d.getPrimitiveLong() >= 50))
+                .sorted().collect(Collectors.toList());
+
+        // Account 4 has one document with each of the values, but none with both
+        QueryParameters glenden = QueryParameters.query("filter=documents.objectInteger:eq:99 " +
+                "documents.string:eq:'Glenden'").build();
+
+        for (boolean subqueries : new boolean[]{true, false}) {
+
+            JPAUtils.setToManySubqueries(subqueries);
+
+            try {
+
+                Assert.assertEquals(expected, ids(JPAUtils.queryEntities(em, AccountEntity.class, q)));
+                Assert.assertEquals(expected.size(), JPAUtils.queryEntitiesCount(em, AccountEntity.class, q)
+                        .longValue());
+                Assert.assertTrue(JPAUtils.exists(em, AccountEntity.class, q));
+
+                Assert.assertEquals(Collections.singletonList(4),
+                        ids(JPAUtils.queryEntities(em, AccountEntity.class, glenden)));
+                Assert.assertEquals(1, JPAUtils.queryEntitiesCount(em, AccountEntity.class, glenden).longValue());
+            } finally {
+
+                JPAUtils.setToManySubqueries(true);
+            }
+        }
+    }
+
+    @Test
+    public void testSeparateQueriesDoNotShareJoins() {
+
+        QueryParameters q = QueryParameters.query("filter=account.name:isnotnull").build();
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<DocumentEntity> cq = cb.createQuery(DocumentEntity.class);
+        Root<DocumentEntity> first = cq.from(DocumentEntity.class);
+
+        JPAUtils.createWhereQuery(cb, first, q);
+
+        CriteriaQuery<DocumentEntity> other = cb.createQuery(DocumentEntity.class);
+        Root<DocumentEntity> second = other.from(DocumentEntity.class);
+
+        JPAUtils.createWhereQuery(cb, second, q);
+        JPAUtils.createOrderQuery(cb, second, QueryParameters.query("order=account.name").build());
+
+        Assert.assertEquals(1, first.getJoins().size());
+        Assert.assertEquals(1, second.getJoins().size());
+        Assert.assertNotSame(first.getJoins().iterator().next(), second.getJoins().iterator().next());
+    }
+
+    private static List<Integer> ids(List<AccountEntity> accounts) {
+        return accounts.stream().map(AccountEntity::getId).collect(Collectors.toList());
+    }
+}
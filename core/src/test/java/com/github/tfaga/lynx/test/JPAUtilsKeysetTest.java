@@ -0,0 +1,277 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.exceptions.InvalidEntityFieldException;
+import com.github.tfaga.lynx.exceptions.InvalidFieldValueException;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import com.github.tfaga.lynx.utils.QueryTemplateCache;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsKeysetTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testPagesMatchOffsetPaging() {
+
+        for (String order : Arrays.asList("id", "name", "name DESC,value", "value DESC", "address.country,size DESC")) {
+
+            List<AccountEntity> expected = JPAUtils.queryEntities(em, AccountEntity.class,
+                    QueryParameters.query("order=" + order).build());
+
+            List<AccountEntity> paged = queryAllPages(AccountEntity.class, "order=" + order + "&limit=7");
+
+            Assert.assertEquals(order, ids(expected, AccountEntity::getId), ids(paged, AccountEntity::getId));
+        }
+    }
+
+    @Test
+    public void testPagesWithoutOrder() {
+
+        List<AccountEntity> paged = queryAllPages(AccountEntity.class, "limit=9");
+
+        Assert.assertEquals(50, paged.size());
+
+        for (int i = 0; i < paged.size(); i++) {
+            Assert.assertEquals(i + 1, paged.get(i).getId().intValue());
+        }
+    }
+
+    @Test
+    public void testPagesWithFilters() {
+
+        String query = "filter=value:gte:20 name:neq:Caryl&order=name";
+
+        List<AccountEntity> expected = JPAUtils.queryEntities(em, AccountEntity.class,
+                QueryParameters.query(query).build());
+
+        List<AccountEntity> paged = queryAllPages(AccountEntity.class, query + "&limit=4");
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(ids(expected, AccountEntity::getId), ids(paged, AccountEntity::getId));
+    }
+
+    @Test
+    public void testPagesWithEmbeddedId() {
+
+        for (String order : Arrays.asList("primitiveInteger DESC", "account.name,id.version DESC")) {
+
+            List<DocumentEntity> expected = JPAUtils.queryEntities(em, DocumentEntity.class,
+                    QueryParameters.query("order=" + order + ",id.key,id.version").build());
+
+            List<DocumentEntity> paged = queryAllPages(DocumentEntity.class, "order=" + order + "&limit=6");
+
+            Assert.assertEquals(order, ids(expected, JPAUtilsKeysetTest::documentId),
+                    ids(paged, JPAUtilsKeysetTest::documentId));
+        }
+    }
+
+    @Test
+    public void testNullableKeyIsRejected() {
+
+        QueryParameters q = QueryParameters.query("order=objectEnum&limit=5").build();
+
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("order=objectEnum").build());
+
+        // Ordering alone keeps the order of the database, with the rows with NULL values
+        Assert.assertEquals(50, documents.size());
+        Assert.assertTrue(documents.stream().anyMatch(d -> d.getObjectEnum() == null));
+
+        try {
+
+            JPAUtils.createCursor(em, DocumentEntity.class, q, documents.get(0));
+            Assert.fail("No exception was thrown");
+        } catch (InvalidEntityFieldException e) {
+
+            Assert.assertEquals("objectEnum", e.getField());
+        }
+
+        q.setAfter("AQAAAAEC");
+
+        try {
+
+            JPAUtils.queryEntities(em, DocumentEntity.class, q);
+            Assert.fail("No exception was thrown");
+        } catch (InvalidEntityFieldException e) {
+
+            Assert.assertEquals("objectEnum", e.getField());
+        }
+    }
+
+    @Test
+    public void testBefore() {
+
+        QueryParameters q = QueryParameters.query("order=name DESC&limit=5&offset=10").build();
+
+        List<AccountEntity> third = JPAUtils.queryEntities(em, AccountEntity.class, q);
+
+        QueryParameters previous = QueryParameters.query("order=name DESC&limit=5").build();
+        previous.setBefore(JPAUtils.createCursor(em, AccountEntity.class, previous, third.get(0)));
+
+        QueryParameters second = QueryParameters.query("order=name DESC&limit=5&offset=5").build();
+
+        Assert.assertEquals(ids(JPAUtils.queryEntities(em, AccountEntity.class, second), AccountEntity::getId),
+                ids(JPAUtils.queryEntities(em, AccountEntity.class, previous), AccountEntity::getId));
+    }
+
+    @Test
+    public void testProjectionsAndFields() {
+
+        QueryParameters q = QueryParameters.query("fields=name,id&order=name&limit=5&offset=20").build();
+
+        List<AccountEntity> fifth = JPAUtils.queryEntities(em, AccountEntity.class, q);
+
+        QueryParameters next = QueryParameters.query("fields=name,id&order=name&limit=5").build();
+        next.setAfter(JPAUtils.createCursor(em, AccountEntity.class, next, fifth.get(4)));
+
+        q.setOffset(25);
+
+        Assert.assertEquals(ids(JPAUtils.queryEntities(em, AccountEntity.class, q), AccountEntity::getId),
+                ids(JPAUtils.queryEntities(em, AccountEntity.class, next), AccountEntity::getId));
+
+        List<Map> maps = JPAUtils.queryProjections(em, AccountEntity.class, next, Map.class);
+
+        Assert.assertEquals(ids(JPAUtils.queryEntities(em, AccountEntity.class, q), AccountEntity::getId),
+                maps.stream().map(m -> (Integer) m.get("id")).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPagesShareTemplate() {
+
+        QueryTemplateCache cache = JPAUtils.getQueryTemplateCache();
+        cache.clear();
+
+        queryAllPages(AccountEntity.class, "filter=value:gte:0&order=name&limit=10");
+
+        // The first page without a cursor and all the following ones
+        Assert.assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void testCountIgnoresCursor() {
+
+        QueryParameters q = QueryParameters.query("order=name&limit=5").build();
+        q.setAfter(JPAUtils.createCursor(em, AccountEntity.class, q,
+                JPAUtils.queryEntities(em, AccountEntity.class, q).get(4)));
+
+        Assert.assertEquals(50, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q).longValue());
+    }
+
+    @Test
+    public void testInvalidCursor() {
+
+        for (String cursor : Arrays.asList("not a cursor", "AQ", "AQAAAAEC")) {
+
+            QueryParameters q = QueryParameters.query("order=name").build();
+            q.setAfter(cursor);
+
+            try {
+
+                JPAUtils.queryEntities(em, AccountEntity.class, q);
+                Assert.fail("No exception was thrown");
+            } catch (InvalidFieldValueException e) {
+
+                Assert.assertEquals("after", e.getField());
+                Assert.assertEquals(cursor, e.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testCursorOfDifferentOrder() {
+
+        QueryParameters q = QueryParameters.query("order=name").build();
+        String cursor = JPAUtils.createCursor(em, AccountEntity.class, q,
+                JPAUtils.queryEntities(em, AccountEntity.class, q).get(0));
+
+        QueryParameters other = QueryParameters.query("order=name DESC").build();
+        other.setBefore(cursor);
+
+        try {
+
+            JPAUtils.queryEntities(em, AccountEntity.class, other);
+            Assert.fail("No exception was thrown");
+        } catch (InvalidFieldValueException e) {
+
+            Assert.assertEquals("before", e.getField());
+        }
+    }
+
+    @Test(expected = InvalidEntityFieldException.class)
+    public void testUnsupportedOrder() {
+
+        JPAUtils.createCursor(em, DocumentEntity.class, QueryParameters.query("order=customObject").build(),
+                JPAUtils.queryEntities(em, DocumentEntity.class).get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBothCursors() {
+
+        QueryParameters q = new QueryParameters();
+        q.setAfter("AQAAAAEC");
+        q.setBefore("AQAAAAEC");
+
+        JPAUtils.queryEntities(em, AccountEntity.class, q);
+    }
+
+    private <T> List<T> queryAllPages(Class<T> entity, String query) {
+
+        List<T> all = new ArrayList<>();
+
+        QueryParameters q = QueryParameters.query(query).build();
+
+        List<T> page = JPAUtils.queryEntities(em, entity, q);
+
+        while (!page.isEmpty()) {
+
+            all.addAll(page);
+
+            q.setAfter(JPAUtils.createCursor(em, entity, q, page.get(page.size() - 1)));
+
+            page = JPAUtils.queryEntities(em, entity, q);
+        }
+
+        return all;
+    }
+
+    private static <T> List<Object> ids(List<T> entities, Function<T, Object> id) {
+        return entities.stream().map(id).collect(Collectors.toList());
+    }
+
+    private static Object documentId(DocumentEntity document) {
+        return Arrays.asList(document.getId().getKey(), document.getId().getVersion());
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryPage;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsPageTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testPageMatchesQueryAndCount() {
+
+        for (String query : Arrays.asList("limit=10", "limit=10&offset=45", "limit=7&order=name DESC",
+                "filter=value:gte:50&limit=3&offset=2&order=value", "filter=name:eq:Nobody&limit=5",
+                "fields=name,id&limit=4&offset=8&order=name", "offset=40", "")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            QueryPage<AccountEntity> page = JPAUtils.queryPage(em, AccountEntity.class, q);
+
+            Assert.assertEquals(query, ids(JPAUtils.queryEntities(em, AccountEntity.class, q)), ids(page.getItems()));
+            Assert.assertEquals(query, JPAUtils.queryEntitiesCount(em, AccountEntity.class, q), page.getTotal());
+        }
+    }
+
+    @Test
+    public void testHasMore() {
+
+        Assert.assertTrue(queryPage("limit=10&offset=39").hasMore());
+        Assert.assertFalse(queryPage("limit=10&offset=40").hasMore());
+        Assert.assertFalse(queryPage("limit=10&offset=41").hasMore());
+        Assert.assertFalse(queryPage("limit=50").hasMore());
+        Assert.assertTrue(queryPage("limit=49").hasMore());
+        Assert.assertFalse(queryPage("offset=10").hasMore());
+        Assert.assertTrue(queryPage("limit=0").hasMore());
+        Assert.assertTrue(queryPage("limit=0").getItems().isEmpty());
+
+        QueryPage<AccountEntity> page = queryPage("limit=10&offset=39");
+
+        Assert.assertEquals(10, page.getItems().size());
+        Assert.assertEquals(50, page.getTotal().longValue());
+    }
+
+    @Test
+    public void testSkippedCount() {
+
+        for (String query : Arrays.asList("limit=10&offset=45", "limit=50", "offset=10", "filter=name:eq:Nobody&limit=5",
+                "filter=name:eq:Nobody", "limit=0&filter=name:eq:Nobody", "filter=value:gte:50&limit=100&offset=1")) {
+
+            long executed = JPAUtils.getExecutedPageCounts();
+            long skipped = JPAUtils.getSkippedPageCounts();
+
+            QueryPage<AccountEntity> page = queryPage(query);
+
+            Assert.assertEquals(query, JPAUtils.queryEntitiesCount(em, AccountEntity.class,
+                    QueryParameters.query(query).build()), page.getTotal());
+            Assert.assertEquals(query, executed, JPAUtils.getExecutedPageCounts());
+            Assert.assertEquals(query, skipped + 1, JPAUtils.getSkippedPageCounts());
+        }
+    }
+
+    @Test
+    public void testExecutedCount() {
+
+        for (String query : Arrays.asList("limit=10", "limit=49", "limit=0", "limit=10&offset=50", "offset=60")) {
+
+            long executed = JPAUtils.getExecutedPageCounts();
+            long skipped = JPAUtils.getSkippedPageCounts();
+
+            QueryPage<AccountEntity> page = queryPage(query);
+
+            Assert.assertEquals(query, 50, page.getTotal().longValue());
+            Assert.assertEquals(query, executed + 1, JPAUtils.getExecutedPageCounts());
+            Assert.assertEquals(query, skipped, JPAUtils.getSkippedPageCounts());
+        }
+
+        QueryParameters q = QueryParameters.query("order=name&limit=100").build();
+        q.setAfter(JPAUtils.createCursor(em, AccountEntity.class, q,
+                JPAUtils.queryEntities(em, AccountEntity.class, q).get(4)));
+
+        long executed = JPAUtils.getExecutedPageCounts();
+
+        QueryPage<AccountEntity> page = JPAUtils.queryPage(em, AccountEntity.class, q);
+
+        Assert.assertEquals(45, page.getItems().size());
+        Assert.assertEquals(50, page.getTotal().longValue());
+        Assert.assertEquals(executed + 1, JPAUtils.getExecutedPageCounts());
+    }
+
+    @Test
+    public void testBeforeCursor() {
+
+        QueryParameters q = QueryParameters.query("order=name&limit=5").build();
+        List<AccountEntity> all = JPAUtils.queryEntities(em, AccountEntity.class,
+                QueryParameters.query("order=name").build());
+
+        q.setBefore(JPAUtils.createCursor(em, AccountEntity.class, q, all.get(7)));
+
+        QueryPage<AccountEntity> page = JPAUtils.queryPage(em, AccountEntity.class, q);
+
+        Assert.assertEquals(ids(all.subList(2, 7)), ids(page.getItems()));
+        Assert.assertTrue(page.hasMore());
+        Assert.assertEquals(50, page.getTotal().longValue());
+
+        q.setBefore(JPAUtils.createCursor(em, AccountEntity.class, q, all.get(5)));
+
+        page = JPAUtils.queryPage(em, AccountEntity.class, q);
+
+        Assert.assertEquals(ids(all.subList(0, 5)), ids(page.getItems()));
+        Assert.assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void testCustomFilterAndToManyFilter() {
+
+        QueryParameters q = QueryParameters.query("filter=documents.primitiveInteger:gte:0&limit=3").build();
+
+        QueryPage<AccountEntity> page = JPAUtils.queryPage(em, AccountEntity.class, q,
+                (p, cb, r) -> cb.and(p, cb.lessThan(r.get("id"), 20)));
+
+        Assert.assertEquals(3, page.getItems().size());
+        Assert.assertEquals(JPAUtils.queryEntitiesCount(em, AccountEntity.class, q,
+                (p, cb, r) -> cb.and(p, cb.lessThan(r.get("id"), 20))), page.getTotal());
+        Assert.assertTrue(page.hasMore());
+
+        QueryPage<DocumentEntity> documents = JPAUtils.queryPage(em, DocumentEntity.class,
+                QueryParameters.query("filter=account.name:eq:Caryl&limit=100").build());
+
+        Assert.assertEquals(documents.getItems().size(), documents.getTotal().intValue());
+        Assert.assertFalse(documents.hasMore());
+    }
+
+    private QueryPage<AccountEntity> queryPage(String query) {
+        return JPAUtils.queryPage(em, AccountEntity.class, QueryParameters.query(query).build());
+    }
+
+    private static List<Integer> ids(List<AccountEntity> accounts) {
+        return accounts.stream().map(AccountEntity::getId).collect(Collectors.toList());
+    }
+}
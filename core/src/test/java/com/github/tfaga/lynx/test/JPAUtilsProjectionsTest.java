@@ -0,0 +1,168 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.exceptions.InvalidEntityFieldException;
+import com.github.tfaga.lynx.exceptions.NoSuchEntityFieldException;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.projections.AccountSummary;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsProjectionsTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMaps() {
+
+        QueryParameters q = QueryParameters.query("fields=value,name,address.country,name&order=id&limit=10")
+                .build();
+
+        List<Map> rows = JPAUtils.queryProjections(em, AccountEntity.class, q, Map.class);
+        List<AccountEntity> accounts = accounts(q);
+
+        Assert.assertEquals(10, rows.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+
+            Map<String, Object> row = (Map<String, Object>) rows.get(i);
+
+            Assert.assertEquals(Arrays.asList("value", "name", "address.country"), Arrays.asList(row.keySet()
+                    .toArray()));
+            Assert.assertEquals(accounts.get(i).getValue(), row.get("value"));
+            Assert.assertEquals(accounts.get(i).getName(), row.get("name"));
+            Assert.assertEquals(accounts.get(i).getAddress().getCountry(), row.get("address.country"));
+        }
+    }
+
+    @Test
+    public void testArrays() {
+
+        QueryParameters q = QueryParameters.query("fields=name,id&filter=value:gte:50&order=name DESC").build();
+
+        List<Object[]> rows = JPAUtils.queryProjections(em, AccountEntity.class, q, Object[].class);
+        List<AccountEntity> accounts = accounts(q);
+
+        Assert.assertEquals(accounts.size(), rows.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+
+            Assert.assertEquals(2, rows.get(i).length);
+            Assert.assertEquals(accounts.get(i).getName(), rows.get(i)[0]);
+            Assert.assertEquals(accounts.get(i).getId(), rows.get(i)[1]);
+        }
+
+        List<Object[]> single = JPAUtils.queryProjections(em, AccountEntity.class,
+                QueryParameters.query("fields=name&order=id&limit=1").build(), Object[].class);
+
+        Assert.assertEquals(1, single.get(0).length);
+        Assert.assertEquals(accounts(QueryParameters.query("order=id&limit=1").build()).get(0).getName(),
+                single.get(0)[0]);
+    }
+
+    @Test
+    public void testConstructor() {
+
+        QueryParameters q = QueryParameters.query("fields=name,value,address.country&order=value,id&offset=5")
+                .build();
+
+        List<AccountSummary> summaries = JPAUtils.queryProjections(em, AccountEntity.class, q, AccountSummary.class);
+        List<AccountEntity> accounts = accounts(q);
+
+        Assert.assertEquals(accounts.size(), summaries.size());
+
+        for (int i = 0; i < summaries.size(); i++) {
+
+            Assert.assertEquals(accounts.get(i).getName(), summaries.get(i).getName());
+            Assert.assertEquals(accounts.get(i).getValue(), summaries.get(i).getValue());
+            Assert.assertEquals(accounts.get(i).getAddress().getCountry(), summaries.get(i).getCountry());
+        }
+    }
+
+    @Test
+    public void testRelationPath() {
+
+        QueryParameters q = QueryParameters.query("fields=string,account.name&filter=account.name:eq:Caryl").build();
+
+        List<Object[]> rows = JPAUtils.queryProjections(em, DocumentEntity.class, q, Object[].class);
+        List<DocumentEntity> documents = JPAUtils.queryEntities(em, DocumentEntity.class,
+                QueryParameters.query("filter=account.name:eq:Caryl").build());
+
+        Assert.assertEquals(documents.size(), rows.size());
+
+        for (Object[] row : rows) {
+            Assert.assertEquals("Caryl", row[1]);
+        }
+    }
+
+    @Test
+    public void testCustomFilter() {
+
+        List<Object[]> rows = JPAUtils.queryProjections(em, AccountEntity.class,
+                QueryParameters.query("fields=name").build(), Object[].class,
+                (p, cb, r) -> cb.and(p, cb.equal(r.get("name"), "Selena")));
+
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals("Selena", rows.get(0)[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoFields() {
+
+        JPAUtils.queryProjections(em, AccountEntity.class, new QueryParameters(), Map.class);
+    }
+
+    @Test(expected = NoSuchEntityFieldException.class)
+    public void testNonExistingField() {
+
+        JPAUtils.queryProjections(em, AccountEntity.class, QueryParameters.query("fields=nope").build(), Map.class);
+    }
+
+    @Test(expected = InvalidEntityFieldException.class)
+    public void testToManyField() {
+
+        JPAUtils.queryProjections(em, AccountEntity.class, QueryParameters.query("fields=documents.string").build(),
+                Map.class);
+    }
+
+    private List<AccountEntity> accounts(QueryParameters q) {
+
+        QueryParameters entities = new QueryParameters();
+
+        entities.getFilters().addAll(q.getFilters());
+        entities.getOrder().addAll(q.getOrder());
+        entities.setLimit(q.getLimit());
+        entities.setOffset(q.getOffset());
+
+        return JPAUtils.queryEntities(em, AccountEntity.class, entities);
+    }
+}
@@ -0,0 +1,322 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.exceptions.InvalidFieldValueException;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import com.github.tfaga.lynx.utils.QueryTemplateCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsQueryTemplateTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    private QueryTemplateCache cache;
+
+    @Before
+    public void clearCache() {
+
+        cache = JPAUtils.getQueryTemplateCache();
+        cache.clear();
+    }
+
+    @After
+    public void restoreCache() {
+
+        JPAUtils.setQueryTemplateCacheSize(256);
+        JPAUtils.setInListPadding(false);
+    }
+
+    @Test
+    public void testSameShapeReusesTemplate() {
+
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        for (String name : Arrays.asList("Caryl", "Jarred", "Hamlin", "Nobody")) {
+
+            QueryParameters q = QueryParameters.query("filter=name:eq:" + name + " value:gte:0").build();
+
+            Assert.assertEquals(queryLiterals(q), JPAUtils.queryEntities(em, AccountEntity.class, q));
+        }
+
+        Assert.assertEquals(1, cache.getSize());
+        Assert.assertEquals(misses + 1, cache.getMisses());
+        Assert.assertEquals(hits + 3, cache.getHits());
+    }
+
+    @Test
+    public void testShapes() {
+
+        JPAUtils.queryEntities(em, AccountEntity.class, QueryParameters.query("filter=name:eq:Caryl").build());
+        JPAUtils.queryEntities(em, AccountEntity.class, QueryParameters.query("filter=name:neq:Caryl").build());
+        JPAUtils.queryEntities(em, AccountEntity.class, QueryParameters.query("filter=name:in:[Caryl]").build());
+        JPAUtils.queryEntities(em, AccountEntity.class, QueryParameters.query("filter=name:in:[Caryl,Jarred]").build());
+        JPAUtils.queryEntities(em, AccountEntity.class, QueryParameters.query("filter=name:in:[Retha,Jarred]").build());
+        JPAUtils.queryEntities(em, AccountEntity.class, QueryParameters.query("filter=name:eq:Caryl&order=id").build());
+        JPAUtils.queryEntities(em, AccountEntity.class,
+                QueryParameters.query("filter=name:eq:Caryl&fields=name").build());
+        JPAUtils.queryEntities(em, AccountEntity.class,
+                QueryParameters.query("filter=name:eq:Jarred&limit=1&offset=3").build());
+        JPAUtils.queryEntitiesCount(em, AccountEntity.class, QueryParameters.query("filter=name:eq:Caryl").build());
+        JPAUtils.queryEntitiesCount(em, AccountEntity.class,
+                QueryParameters.query("filter=name:eq:Jarred&order=id").build());
+
+        Assert.assertEquals(7, cache.getSize());
+    }
+
+    @Test
+    public void testCountReusesTemplate() {
+
+        QueryParameters first = QueryParameters.query("filter=name:in:[Caryl,Jarred,Hamlin,Retha]").build();
+        QueryParameters second = QueryParameters.query("filter=name:in:[Caryl,Jarred,Nobody,Retha]").build();
+
+        Assert.assertEquals(queryLiterals(first).size(),
+                JPAUtils.queryEntitiesCount(em, AccountEntity.class, first).longValue());
+        Assert.assertEquals(queryLiterals(second).size(),
+                JPAUtils.queryEntitiesCount(em, AccountEntity.class, second).longValue());
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testAllOperations() {
+
+        List<String> queries = Arrays.asList(
+                "filter=string:eqic:carol", "filter=string:neqic:carol", "filter=string:like:C%",
+                "filter=string:likeic:c%", "filter=objectInteger:gt:50", "filter=objectInteger:lte:50",
+                "filter=utilDate:gte:dt'2017-06-01T00:00:00Z'", "filter=localDate:lt:'2017-06-01'",
+                "filter=string:inic:[carol,BOB]", "filter=string:ninic:[carol,BOB]",
+                "filter=objectEnum:nin:[FIRST]", "filter=uuid:isnull", "filter=account.name:isnotnull",
+                "filter=bigDecimal:gt:10.5 primitiveDouble:lt:80", "filter=objectCharacter:eq:a");
+
+        for (String query : queries) {
+
+            for (int i = 0; i < 2; i++) {
+
+                QueryParameters q = QueryParameters.query(query).build();
+
+                Assert.assertEquals(query, queryLiterals(DocumentEntity.class, q),
+                        JPAUtils.queryEntities(em, DocumentEntity.class, q));
+            }
+        }
+
+        Assert.assertEquals(queries.size(), cache.getSize());
+    }
+
+    @Test
+    public void testInListPadding() {
+
+        JPAUtils.setInListPadding(true);
+
+        Assert.assertTrue(JPAUtils.isInListPadding());
+
+        List<String> ids = new ArrayList<>();
+
+        for (int i = 1; i <= 20; i++) {
+
+            ids.add(String.valueOf((i * 7) % 23));
+
+            for (String operation : Arrays.asList("in", "nin")) {
+
+                QueryParameters q = QueryParameters.query("filter=id:" + operation + ":[" +
+                        String.join(",", ids) + "," + ids.get(0) + "]").build();
+
+                Assert.assertEquals(queryLiterals(q), JPAUtils.queryEntities(em, AccountEntity.class, q));
+                Assert.assertEquals(queryLiterals(q).size(),
+                        JPAUtils.queryEntitiesCount(em, AccountEntity.class, q).longValue());
+            }
+        }
+
+        // Buckets of 1, 2, 4, 8, 16 and 32 values for two operations and two kinds of queries
+        Assert.assertEquals(6 * 2 * 2, cache.getSize());
+
+        for (String operation : Arrays.asList("inic", "ninic")) {
+
+            QueryParameters q = QueryParameters.query("filter=name:" + operation + ":[caryl,JARRED,Caryl,retha,x]")
+                    .build();
+
+            Assert.assertEquals(queryLiterals(q), JPAUtils.queryEntities(em, AccountEntity.class, q));
+        }
+
+        JPAUtils.setInListPadding(false);
+
+        QueryParameters q = QueryParameters.query("filter=id:in:[1,2,3]").build();
+
+        Assert.assertEquals(queryLiterals(q), JPAUtils.queryEntities(em, AccountEntity.class, q));
+        Assert.assertEquals(6 * 2 * 2 + 2 + 1, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidValueWithCachedTemplate() {
+
+        JPAUtils.queryEntities(em, DocumentEntity.class, QueryParameters.query("filter=uuid:eq:" +
+                "c1b9a1a0-3c8b-4f7a-9a3e-4b1e7a6c1d2e").build());
+
+        try {
+
+            JPAUtils.queryEntities(em, DocumentEntity.class, QueryParameters.query("filter=uuid:eq:INVALID").build());
+            Assert.fail("No exception was thrown");
+        } catch (InvalidFieldValueException e) {
+
+            Assert.assertEquals("INVALID", e.getValue());
+        }
+    }
+
+    @Test
+    public void testClosedFactoryIsRemoved() {
+
+        QueryParameters q = QueryParameters.query("filter=value:gte:0").build();
+
+        EntityManagerFactory emf = JpaUtil.getInstance().createEntityManagerFactory(em, "lynx-templates");
+        EntityManager other = emf.createEntityManager();
+
+        Assert.assertEquals(JPAUtils.queryEntities(em, AccountEntity.class, q),
+                JPAUtils.queryEntities(em, AccountEntity.class, q));
+        Assert.assertEquals(50, JPAUtils.queryEntities(other, AccountEntity.class, q).size());
+
+        // The factories have templates of their own
+        Assert.assertEquals(2, cache.getSize());
+
+        other.close();
+        emf.close();
+
+        JPAUtils.queryEntitiesCount(em, AccountEntity.class, q);
+
+        // The miss of the count removed the template of the closed factory
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testCustomFilterIsNotCached() {
+
+        List<AccountEntity> accounts = JPAUtils.queryEntities(em, AccountEntity.class,
+                QueryParameters.query("filter=value:gte:0").build(),
+                (p, cb, r) -> cb.and(p, cb.equal(r.get("name"), "Selena")));
+
+        Assert.assertEquals(1, accounts.size());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testDisabledCache() {
+
+        JPAUtils.setQueryTemplateCacheSize(0);
+
+        Assert.assertNull(JPAUtils.getQueryTemplateCache());
+
+        QueryParameters q = QueryParameters.query("filter=name:in:[Caryl,Jarred]&order=name").build();
+
+        Assert.assertEquals(queryLiterals(q), JPAUtils.queryEntities(em, AccountEntity.class, q));
+        Assert.assertEquals(queryLiterals(q).size(),
+                JPAUtils.queryEntitiesCount(em, AccountEntity.class, q).longValue());
+    }
+
+    @Test
+    public void testConcurrentEntityManagers() throws Exception {
+
+        List<String> names = Arrays.asList("Caryl", "Jarred", "Hamlin", "Retha", "Selena", "Nobody");
+
+        List<List<AccountEntity>> expected = new ArrayList<>();
+
+        for (String name : names) {
+            expected.add(queryLiterals(QueryParameters.query("filter=name:eq:" + name).build()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < 4; t++) {
+
+                futures.add(executor.submit(() -> {
+
+                    EntityManager threadEm = em.getEntityManagerFactory().createEntityManager();
+
+                    try {
+
+                        for (int i = 0; i < 50; i++) {
+
+                            int n = i % names.size();
+
+                            List<AccountEntity> accounts = JPAUtils.queryEntities(threadEm, AccountEntity.class,
+                                    QueryParameters.query("filter=name:eq:" + names.get(n)).build());
+
+                            Assert.assertEquals(expected.get(n).size(), accounts.size());
+
+                            for (int j = 0; j < accounts.size(); j++) {
+                                Assert.assertEquals(expected.get(n).get(j).getId(), accounts.get(j).getId());
+                            }
+                        }
+                    } finally {
+                        threadEm.close();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+    private List<AccountEntity> queryLiterals(QueryParameters q) {
+        return queryLiterals(AccountEntity.class, q);
+    }
+
+    private <T> List<T> queryLiterals(Class<T> entity, QueryParameters q) {
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> cq = cb.createQuery(entity);
+        Root<T> r = cq.from(entity);
+
+        cq.select(r).where(JPAUtils.createWhereQuery(cb, r, q));
+
+        if (!q.getOrder().isEmpty()) cq.orderBy(JPAUtils.createOrderQuery(cb, r, q, "id"));
+
+        return em.createQuery(cq).getResultList();
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.StreamCleanup;
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.test.entities.DocumentEntity;
+import com.github.tfaga.lynx.test.utils.JpaUtil;
+import com.github.tfaga.lynx.utils.JPAUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsStreamTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @After
+    public void clear() {
+        em.clear();
+    }
+
+    @Test
+    public void testStreamMatchesList() {
+
+        QueryParameters q = QueryParameters.query("filter=primitiveInteger:gte:10&order=string DESC").build();
+
+        List<DocumentEntity> expected = JPAUtils.queryEntities(em, DocumentEntity.class, q);
+
+        em.clear();
+
+        try (Stream<DocumentEntity> documents = JPAUtils.streamEntities(em, DocumentEntity.class, q)) {
+
+            Assert.assertEquals(expected.stream().map(d -> d.getId().getKey()).collect(Collectors.toList()),
+                    documents.map(d -> d.getId().getKey()).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testLimitAndOffset() {
+
+        QueryParameters q = QueryParameters.query("order=id&limit=15&offset=30").build();
+
+        try (Stream<AccountEntity> accounts = JPAUtils.streamEntities(em, AccountEntity.class, q, null, 4,
+                StreamCleanup.DETACH)) {
+
+            List<Integer> ids = accounts.map(AccountEntity::getId).collect(Collectors.toList());
+
+            Assert.assertEquals(15, ids.size());
+            Assert.assertEquals(31, ids.get(0).intValue());
+            Assert.assertEquals(45, ids.get(14).intValue());
+        }
+    }
+
+    @Test
+    public void testDetachedInBatches() {
+
+        List<AccountEntity> processed = new ArrayList<>();
+
+        try (Stream<AccountEntity> accounts = JPAUtils.streamEntities(em, AccountEntity.class,
+                QueryParameters.query("order=id").build(), null, 10, StreamCleanup.DETACH)) {
+
+            accounts.forEach(a -> {
+
+                int batchStart = processed.size() / 10 * 10;
+
+                for (int i = 0; i < processed.size(); i++) {
+                    Assert.assertEquals(i >= batchStart, em.contains(processed.get(i)));
+                }
+
+                Assert.assertTrue(em.contains(a));
+
+                processed.add(a);
+            });
+        }
+
+        Assert.assertEquals(50, processed.size());
+
+        for (AccountEntity a : processed) {
+            Assert.assertFalse(em.contains(a));
+        }
+    }
+
+    @Test
+    public void testClearedInBatches() {
+
+        AccountEntity loaded = em.find(AccountEntity.class, 1);
+
+        try (Stream<AccountEntity> accounts = JPAUtils.streamEntities(em, AccountEntity.class,
+                QueryParameters.query("order=id&offset=10").build(), null, 5, StreamCleanup.CLEAR)) {
+
+            Iterator<AccountEntity> iterator = accounts.iterator();
+
+            List<AccountEntity> batch = new ArrayList<>();
+
+            for (int i = 0; i < 5; i++) {
+                batch.add(iterator.next());
+            }
+
+            Assert.assertTrue(em.contains(loaded));
+
+            iterator.next();
+
+            Assert.assertFalse(em.contains(loaded));
+            Assert.assertFalse(em.contains(batch.get(0)));
+        }
+    }
+
+    @Test
+    public void testManagedWithoutCleanup() {
+
+        try (Stream<AccountEntity> accounts = JPAUtils.streamEntities(em, AccountEntity.class,
+                QueryParameters.query("order=id").build(), null, 3, StreamCleanup.NONE)) {
+
+            List<AccountEntity> all = accounts.collect(Collectors.toList());
+
+            Assert.assertEquals(50, all.size());
+
+            for (AccountEntity a : all) {
+                Assert.assertTrue(em.contains(a));
+            }
+        }
+    }
+
+    @Test
+    public void testProjectedFields() {
+
+        QueryParameters q = QueryParameters.query("fields=name&filter=value:lt:50&order=id").build();
+
+        List<AccountEntity> expected = JPAUtils.queryEntities(em, AccountEntity.class, q);
+
+        try (Stream<AccountEntity> accounts = JPAUtils.streamEntities(em, AccountEntity.class, q, null, 7,
+                StreamCleanup.CLEAR)) {
+
+            List<AccountEntity> streamed = accounts.collect(Collectors.toList());
+
+            Assert.assertEquals(expected.size(), streamed.size());
+
+            for (int i = 0; i < streamed.size(); i++) {
+
+                Assert.assertEquals(expected.get(i).getId(), streamed.get(i).getId());
+                Assert.assertEquals(expected.get(i).getName(), streamed.get(i).getName());
+                Assert.assertNull(streamed.get(i).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testCloseBeforeEnd() {
+
+        for (int i = 0; i < 20; i++) {
+
+            try (Stream<DocumentEntity> documents = JPAUtils.streamEntities(em, DocumentEntity.class,
+                    new QueryParameters(), null, 2, StreamCleanup.DETACH)) {
+
+                Assert.assertEquals(3, documents.limit(3).count());
+            }
+        }
+
+        Assert.assertEquals(JPAUtils.queryEntitiesCount(em, DocumentEntity.class).longValue(),
+                JPAUtils.queryEntities(em, DocumentEntity.class).size());
+    }
+
+    @Test
+    public void testCustomFilter() {
+
+        try (Stream<AccountEntity> accounts = JPAUtils.streamEntities(em, AccountEntity.class,
+                new QueryParameters(), (p, cb, r) -> cb.and(p, cb.equal(r.get("name"), "Selena")))) {
+
+            Assert.assertEquals(Arrays.asList("Selena"),
+                    accounts.map(AccountEntity::getName).collect(Collectors.toList()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+
+        JPAUtils.streamEntities(em, AccountEntity.class, new QueryParameters(), null, 0, StreamCleanup.DETACH);
+    }
+}
@@ -1,11 +1,16 @@
 package com.github.tfaga.lynx.test;
 
+import com.github.tfaga.lynx.beans.ImmutableQueryFilter;
 import com.github.tfaga.lynx.beans.QueryFilter;
 import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.exceptions.ConversionException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -90,4 +95,65 @@ public class QueryFilterTest {
         Assert.assertEquals(1, filter.getValues().size());
         Assert.assertTrue(values.equals(filter.getValues()));
     }
+
+    @Test
+    public void testTypedValue() throws ConversionException {
+
+        QueryFilter filter = new QueryFilter("active", FilterOperation.EQ, "true");
+
+        Assert.assertEquals(true, filter.getTypedValue(Boolean.class));
+        Assert.assertEquals("true", filter.getTypedValue(String.class));
+
+        filter.setValue("2014-11-26");
+
+        Assert.assertEquals(LocalDate.parse("2014-11-26"), filter.getTypedValue(LocalDate.class));
+    }
+
+    @Test
+    public void testTypedDateValue() throws ConversionException {
+
+        Date date = Date.from(Instant.parse("2014-11-26T11:15:08Z"));
+
+        QueryFilter filter = new QueryFilter("createdAt", FilterOperation.GT, date);
+
+        Assert.assertEquals(date, filter.getTypedValue(Date.class));
+        Assert.assertEquals(Instant.parse("2014-11-26T11:15:08Z"), filter.getTypedValue(Instant.class));
+        Assert.assertEquals(LocalDate.parse("2014-11-26"), filter.getTypedValue(LocalDate.class));
+        Assert.assertNull(filter.getTypedValue(String.class));
+    }
+
+    @Test
+    public void testTypedValues() throws ConversionException {
+
+        QueryFilter filter = new QueryFilter("day", FilterOperation.IN,
+                new ArrayList<>(Arrays.asList("2014-11-26", null, "2014-11-28")));
+
+        Assert.assertEquals(Arrays.asList(LocalDate.parse("2014-11-26"), LocalDate.parse("2014-11-28")),
+                filter.getTypedValues(LocalDate.class));
+    }
+
+    @Test(expected = ConversionException.class)
+    public void testTypedValueInvalid() throws ConversionException {
+
+        new QueryFilter("day", FilterOperation.IN, Arrays.asList("2014-11-26", "x")).getTypedValues(LocalDate.class);
+    }
+
+    @Test
+    public void testImmutableTypedValuesAreReused() throws ConversionException {
+
+        QueryFilter filter = ImmutableQueryFilter.copyOf(new QueryFilter("createdAt", FilterOperation.IN,
+                Arrays.asList("2014-11-26T11:15:08Z", "2015-11-26T11:15:08Z")));
+
+        List<Object> values = filter.getTypedValues(Instant.class);
+
+        Assert.assertEquals(2, values.size());
+        Assert.assertSame(values, filter.getTypedValues(Instant.class));
+        Assert.assertNotSame(values, filter.getTypedValues(Date.class));
+        Assert.assertEquals(Date.from(Instant.parse("2014-11-26T11:15:08Z")),
+                filter.getTypedValues(Date.class).get(0));
+
+        QueryFilter single = ImmutableQueryFilter.copyOf(new QueryFilter("day", FilterOperation.EQ, "2014-11-26"));
+
+        Assert.assertSame(single.getTypedValue(LocalDate.class), single.getTypedValue(LocalDate.class));
+    }
 }
@@ -0,0 +1,235 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
+import com.github.tfaga.lynx.beans.QueryFilter;
+import com.github.tfaga.lynx.beans.QueryOrder;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.utils.QueryParametersCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryParametersCodecTest {
+
+    private static final String QUERY = "limit=20&offset=40&order=name DESC,id&fields=name,id,email&" +
+            "filter=name:in:[a,'b c',žival] createdAt:gte:dt'2014-11-26T11:15:08Z' email:isnull name:neq:x";
+
+    @Test
+    public void testRoundTrip() {
+
+        QueryParameters query = QueryParameters.query(QUERY).build();
+
+        ByteBuffer buffer = QueryParametersCodec.encode(query);
+
+        Assert.assertEquals(QueryParametersCodec.encodedSize(query), buffer.remaining());
+
+        QueryParameters decoded = QueryParametersCodec.decode(buffer);
+
+        Assert.assertFalse(buffer.hasRemaining());
+        assertEquals(query, decoded);
+        Assert.assertEquals(OrderDirection.DESC, decoded.getOrder().get(0).getOrder());
+        Assert.assertEquals("žival", decoded.getFilters().get(1).getValues().get(2));
+    }
+
+    @Test
+    public void testRoundTripEveryFilterOperation() {
+
+        for (FilterOperation operation : FilterOperation.values()) {
+
+            QueryParameters query = new QueryParameters();
+
+            switch (operation) {
+
+                case IN:
+                case INIC:
+                case NIN:
+                case NINIC:
+                    query.getFilters().add(new QueryFilter("name", operation, Arrays.asList("a", "", "c d")));
+                    break;
+
+                case ISNULL:
+                case ISNOTNULL:
+                    query.getFilters().add(new QueryFilter("name", operation));
+                    break;
+
+                default:
+                    query.getFilters().add(new QueryFilter("name", operation, "value"));
+                    query.getFilters().add(new QueryFilter("createdAt", operation, new Date(1416999308000L)));
+            }
+
+            assertEquals(query, QueryParametersCodec.decode(QueryParametersCodec.encode(query)));
+        }
+    }
+
+    @Test
+    public void testRoundTripNullValues() {
+
+        QueryParameters query = new QueryParameters();
+
+        query.getFilters().add(new QueryFilter("name", FilterOperation.IN, Arrays.asList("a", null, "")));
+        query.getFilters().add(new QueryFilter("name", FilterOperation.NIN, Arrays.asList(null, null)));
+
+        ByteBuffer buffer = QueryParametersCodec.encode(query);
+
+        Assert.assertEquals(QueryParametersCodec.encodedSize(query), buffer.remaining());
+
+        QueryParameters decoded = QueryParametersCodec.decode(buffer);
+
+        assertEquals(query, decoded);
+        Assert.assertEquals(Arrays.asList("a", null, ""), decoded.getFilters().get(0).getValues());
+        Assert.assertEquals(Arrays.asList(null, null), decoded.getFilters().get(1).getValues());
+    }
+
+    @Test
+    public void testRoundTripCursors() {
+
+        for (String cursor : Arrays.asList("after=AQAAAAEC-_x", "before=AQAAAAEC-_x")) {
+
+            QueryParameters query = QueryParameters.query(QUERY + "&" + cursor).build();
+
+            ByteBuffer buffer = QueryParametersCodec.encode(query);
+
+            Assert.assertEquals(QueryParametersCodec.encodedSize(query), buffer.remaining());
+            assertEquals(query, QueryParametersCodec.decode(buffer));
+        }
+    }
+
+    @Test
+    public void testRoundTripNulls() {
+
+        QueryParameters query = new QueryParameters();
+        query.getOrder().add(new QueryOrder());
+        query.getFilters().add(new QueryFilter());
+        query.getFilters().add(new QueryFilter("date", FilterOperation.LT, new Date(-1000L)));
+
+        QueryParameters decoded = QueryParametersCodec.decode(QueryParametersCodec.encode(query));
+
+        Assert.assertNull(decoded.getLimit());
+        Assert.assertNull(decoded.getOffset());
+        Assert.assertNull(decoded.getAfter());
+        Assert.assertNull(decoded.getBefore());
+        Assert.assertNull(decoded.getOrder().get(0).getField());
+        Assert.assertNull(decoded.getOrder().get(0).getOrder());
+        Assert.assertNull(decoded.getFilters().get(0).getField());
+        Assert.assertNull(decoded.getFilters().get(0).getOperation());
+        Assert.assertEquals(-1000L, decoded.getFilters().get(1).getDateValue().getTime());
+    }
+
+    @Test
+    public void testRoundTripLargeNumbers() {
+
+        QueryParameters query = new QueryParameters();
+        query.setLimit(Long.MAX_VALUE);
+        query.setOffset(Long.MIN_VALUE);
+
+        QueryParameters decoded = QueryParametersCodec.decode(QueryParametersCodec.encode(query));
+
+        Assert.assertEquals(Long.MAX_VALUE, decoded.getLimit().longValue());
+        Assert.assertEquals(Long.MIN_VALUE, decoded.getOffset().longValue());
+    }
+
+    @Test
+    public void testEncodeIntoBuffer() {
+
+        QueryParameters first = QueryParameters.query(QUERY).build();
+        QueryParameters second = QueryParameters.query("limit=5&order=id").buildImmutable();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+
+        QueryParametersCodec.encode(first, buffer);
+        QueryParametersCodec.encode(second, buffer);
+
+        buffer.flip();
+
+        assertEquals(first, QueryParametersCodec.decode(buffer));
+        assertEquals(second, QueryParametersCodec.decode(buffer));
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testEncodeIntoSmallBuffer() {
+
+        QueryParameters query = QueryParameters.query(QUERY).build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(QueryParametersCodec.encodedSize(query) - 1);
+
+        try {
+
+            QueryParametersCodec.encode(query, buffer);
+            Assert.fail("No exception was thrown");
+        } catch (BufferOverflowException e) {
+
+            Assert.assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void testFieldNamesAreWrittenOnce() {
+
+        QueryParameters query = QueryParameters.query("order=description&fields=description&" +
+                "filter=description:like:a description:like:b description:isnotnull").build();
+
+        ByteBuffer buffer = QueryParametersCodec.encode(query);
+
+        String encoded = new String(buffer.array(), StandardCharsets.ISO_8859_1);
+
+        Assert.assertEquals(encoded.indexOf("description"), encoded.lastIndexOf("description"));
+    }
+
+    @Test
+    public void testSmallerThanSerialization() throws IOException {
+
+        QueryParameters query = QueryParameters.query(QUERY).build();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(query);
+        }
+
+        Assert.assertTrue(QueryParametersCodec.encodedSize(query) * 5 < bytes.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeUnsupportedVersion() {
+
+        ByteBuffer buffer = QueryParametersCodec.encode(QueryParameters.query(QUERY).build());
+        buffer.put(0, (byte) 99);
+
+        QueryParametersCodec.decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeTruncated() {
+
+        ByteBuffer buffer = QueryParametersCodec.encode(QueryParameters.query(QUERY).build());
+        buffer.limit(buffer.limit() - 3);
+
+        QueryParametersCodec.decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalidCount() {
+
+        QueryParametersCodec.decode(ByteBuffer.wrap(new byte[]{1, 0, (byte) 0xFF, (byte) 0xFF, 0x7F, 0, 0, 0}));
+    }
+
+    private static void assertEquals(QueryParameters expected, QueryParameters actual) {
+
+        Assert.assertEquals(ImmutableQueryParameters.copyOf(expected), ImmutableQueryParameters.copyOf(actual));
+    }
+}
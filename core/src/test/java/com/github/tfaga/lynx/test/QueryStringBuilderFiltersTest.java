@@ -328,6 +328,17 @@ public class QueryStringBuilderFiltersTest {
         Assert.assertEquals("Kar%", query.getFilters().get(0).getValue());
     }
 
+    @Test
+    public void testQueryEncodedSeparatorInValue() {
+
+        QueryParameters query = QueryParameters.queryEncoded("where=name:eq:R%26D&limit=5").build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(5, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("R&D", query.getFilters().get(0).getValue());
+    }
+
     @Test
     public void testQueryEncodedNull() {
 
@@ -430,6 +441,32 @@ public class QueryStringBuilderFiltersTest {
         Assert.assertEquals("United States", query.getFilters().get(0).getValues().get(1));
     }
 
+    @Test
+    public void testLargeQuotedInFilter() {
+
+        StringBuilder values = new StringBuilder();
+
+        for (int i = 0; i < 10000; i++) {
+            values.append(i == 0 ? "" : ",").append("'Value & ").append(i).append("'");
+        }
+
+        QueryParameters query = QueryParameters.query("limit=30&where=country:in:[" + values + "] " +
+                "name:isnotnull&order=name DESC").build();
+
+        Assert.assertNotNull(query);
+        Assert.assertNotNull(query.getFilters());
+        Assert.assertEquals(2, query.getFilters().size());
+        Assert.assertEquals("name", query.getFilters().get(0).getField());
+        Assert.assertEquals(FilterOperation.ISNOTNULL, query.getFilters().get(0).getOperation());
+        Assert.assertEquals("country", query.getFilters().get(1).getField());
+        Assert.assertEquals(FilterOperation.IN, query.getFilters().get(1).getOperation());
+        Assert.assertEquals(10000, query.getFilters().get(1).getValues().size());
+        Assert.assertEquals("Value & 0", query.getFilters().get(1).getValues().get(0));
+        Assert.assertEquals("Value & 9999", query.getFilters().get(1).getValues().get(9999));
+        Assert.assertEquals(30, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getOrder().size());
+    }
+
     @Test
     public void testIsNullFilter() {
 
@@ -0,0 +1,164 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryStringBuilderLimitsTest {
+
+    @Test
+    public void testQueryLengthWithinLimit() {
+
+        QueryParameters query = QueryParameters.query("limit=10&offset=20").maxQueryLength(18).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(10, query.getLimit().longValue());
+        Assert.assertEquals(20, query.getOffset().longValue());
+    }
+
+    @Test
+    public void testQueryLengthExceeded() {
+
+        try {
+
+            QueryParameters.query("limit=10&offset=20").maxQueryLength(17).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertNull(e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testFiltersWithinLimit() {
+
+        QueryParameters query = QueryParameters.query("filter=name:eq:test email:isnull")
+                .maxFilters(2).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(2, query.getFilters().size());
+    }
+
+    @Test
+    public void testFiltersExceeded() {
+
+        try {
+
+            QueryParameters.query("where=name:eq:test email:isnull age:gt:20").maxFilters(2).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("where", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testFiltersExceededBeforeMalformedValue() {
+
+        try {
+
+            QueryParameters.query("filter=name:eq:test email:isnull age:gt:dt'malformed'").maxFilters(2).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testFilterValuesWithinLimit() {
+
+        QueryParameters query = QueryParameters.query("filter=name:in:[a,b,,,'c,d']")
+                .maxFilterValues(3).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals(3, query.getFilters().get(0).getValues().size());
+    }
+
+    @Test
+    public void testFilterValuesExceeded() {
+
+        try {
+
+            QueryParameters.query("filter=name:nin:[a,b,c,d]").maxFilterValues(3).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("filter", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testOrderWithinLimit() {
+
+        QueryParameters query = QueryParameters.query("order=name DESC,,,email").maxOrder(2).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(2, query.getOrder().size());
+    }
+
+    @Test
+    public void testOrderExceeded() {
+
+        try {
+
+            QueryParameters.query("sort=name DESC,email,age").maxOrder(2).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("sort", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testFieldsWithinLimit() {
+
+        QueryParameters query = QueryParameters.query("fields=name,,email").maxFields(2).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(2, query.getFields().size());
+    }
+
+    @Test
+    public void testFieldsExceeded() {
+
+        try {
+
+            QueryParameters.query("select=name,email,age").maxFields(2).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("select", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testLimitsIgnoredWhenDisabled() {
+
+        QueryParameters query = QueryParameters.query("fields=name,email,age&filter=name:eq:test age:gt:20")
+                .maxFields(2).maxFilters(1).enableFields(false).enableFilters(false).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(0, query.getFields().size());
+        Assert.assertEquals(0, query.getFilters().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+
+        QueryParameters.query("limit=10").maxFilters(-1);
+    }
+}
@@ -356,4 +356,36 @@ public class QueryStringBuilderPagingTest {
         Assert.assertNull(query.getLimit());
         Assert.assertNull(query.getOffset());
     }
+
+    @Test
+    public void testCursors() {
+
+        QueryParameters query = QueryParameters.query("limit=10&after=AQAAAAEC-_x").build();
+
+        Assert.assertEquals("AQAAAAEC-_x", query.getAfter());
+        Assert.assertNull(query.getBefore());
+
+        query = QueryParameters.query("limit=10&before=AQAAAAEC-_x").build();
+
+        Assert.assertNull(query.getAfter());
+        Assert.assertEquals("AQAAAAEC-_x", query.getBefore());
+
+        query = QueryParameters.query("after=AQAAAAEC-_x").enablePagination(false).build();
+
+        Assert.assertNull(query.getAfter());
+    }
+
+    @Test
+    public void testBothCursors() {
+
+        try {
+
+            QueryParameters.query("after=AQAAAAEC&before=AQAAAAED").build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("before", e.getField());
+            Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+        }
+    }
 }
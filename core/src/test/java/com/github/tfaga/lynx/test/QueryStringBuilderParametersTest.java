@@ -0,0 +1,159 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+import com.github.tfaga.lynx.utils.QueryStringDefaults;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryStringBuilderParametersTest {
+
+    @Test
+    public void testParameters() {
+
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("limit", Collections.singletonList("20"));
+        parameters.put("offset", Collections.singletonList("40"));
+        parameters.put("order", Collections.singletonList("name DESC,id"));
+        parameters.put("fields", Collections.singletonList("name,id"));
+        parameters.put("filter", Collections.singletonList("name:in:['Tools & Furniture',b] email:isnull"));
+        parameters.put("unknown", Collections.singletonList("value"));
+
+        QueryParameters query = QueryParameters.parameters(parameters).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+        Assert.assertEquals(40, query.getOffset().longValue());
+        Assert.assertEquals(2, query.getOrder().size());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertEquals(2, query.getFields().size());
+        Assert.assertEquals(2, query.getFilters().size());
+        Assert.assertEquals(FilterOperation.ISNULL, query.getFilters().get(0).getOperation());
+        Assert.assertEquals("Tools & Furniture", query.getFilters().get(1).getValues().get(0));
+    }
+
+    @Test
+    public void testParametersRepeatedValues() {
+
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("limit", Arrays.asList("20", "30"));
+        parameters.put("where", Arrays.asList("name:eq:a", "name:eq:b"));
+
+        QueryParameters query = QueryParameters.parameters(parameters).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(30, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("b", query.getFilters().get(0).getValue());
+    }
+
+    @Test
+    public void testParametersEmptyValues() {
+
+        Map<String, List<String>> parameters = new HashMap<>();
+        parameters.put("limit", Collections.singletonList(""));
+        parameters.put("fields", Arrays.asList(null, null));
+        parameters.put("order", null);
+
+        QueryParameters query = QueryParameters.parameters(parameters).defaultLimit(10).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(10, query.getLimit().longValue());
+        Assert.assertEquals(0, query.getFields().size());
+        Assert.assertEquals(0, query.getOrder().size());
+    }
+
+    @Test
+    public void testParametersNull() {
+
+        QueryParameters query = QueryParameters.parameters(null).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(0, query.getFilters().size());
+    }
+
+    @Test
+    public void testParameterMap() {
+
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("max", new String[]{"5"});
+        parameters.put("sort", new String[]{"name"});
+        parameters.put("select", new String[]{"name"});
+        parameters.put("where", new String[]{"name:eq:'a b'"});
+
+        QueryParameters query = QueryParameters.parameterMap(parameters).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(5, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getOrder().size());
+        Assert.assertEquals(1, query.getFields().size());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("a b", query.getFilters().get(0).getValue());
+    }
+
+    @Test
+    public void testParametersWithDefaults() {
+
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("limit", Collections.singletonList("500"));
+        parameters.put("fields", Collections.singletonList("name,email"));
+
+        QueryParameters query = new QueryStringDefaults().maxLimit(50).allowField("email"::equals)
+                .builder().parameters(parameters).build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(50, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getFields().size());
+        Assert.assertEquals("email", query.getFields().get(0));
+
+        query = new QueryStringDefaults().maxLimit(50).parser().parseParameters(parameters);
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(50, query.getLimit().longValue());
+        Assert.assertEquals(2, query.getFields().size());
+    }
+
+    @Test
+    public void testParametersLength() {
+
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        parameters.put("limit", Collections.singletonList("10"));
+        parameters.put("offset", Collections.singletonList("20"));
+
+        QueryParameters query = QueryParameters.parameters(parameters).maxQueryLength(18).build();
+
+        Assert.assertEquals(20, query.getOffset().longValue());
+
+        try {
+
+            QueryParameters.parameters(parameters).maxQueryLength(17).build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testQueryReplacesParameters() {
+
+        QueryParameters query = QueryParameters.parameters(Collections.singletonMap("limit",
+                Collections.singletonList("20"))).query("limit=30").build();
+
+        Assert.assertEquals(30, query.getLimit().longValue());
+    }
+}
@@ -3,6 +3,8 @@ package com.github.tfaga.lynx.test;
 import com.github.tfaga.lynx.beans.QueryParameters;
 import com.github.tfaga.lynx.enums.FilterOperation;
 import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
 import com.github.tfaga.lynx.utils.QueryStringDefaults;
 import org.junit.Assert;
 import org.junit.Test;
@@ -92,6 +94,128 @@ public class QueryStringDefaultsTest {
         Assert.assertEquals(20, query.getOffset().longValue());
     }
 
+    @Test
+    public void testParsingLimits() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults().maxQueryLength(100).maxFilters(2)
+                .maxFilterValues(2).maxOrder(1).maxFields(1);
+
+        QueryParameters query = qsd.builder().query("fields=name&order=name&filter=name:in:[a,b] age:gt:2").build();
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(1, query.getFields().size());
+        Assert.assertEquals(1, query.getOrder().size());
+        Assert.assertEquals(2, query.getFilters().size());
+
+        try {
+
+            qsd.builder().query("filter=name:in:[a,b,c]").build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("filter", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+
+        try {
+
+            qsd.builder().query("order=name,email").build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("order", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testCacheHit() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults().cacheSize(10);
+
+        QueryParameters query = qsd.queryEncoded("limit=20&order=createdAt%20DESC&filter=status:EQ:ACTIVE");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getOrder().size());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("ACTIVE", query.getFilters().get(0).getValue());
+        Assert.assertEquals(0, qsd.getCache().getHits());
+        Assert.assertEquals(1, qsd.getCache().getMisses());
+
+        query = qsd.queryEncoded("limit=20&order=createdAt%20DESC&filter=status:EQ:ACTIVE");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getOrder().size());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals(1, qsd.getCache().getHits());
+        Assert.assertEquals(1, qsd.getCache().getMisses());
+        Assert.assertEquals(1, qsd.getCache().getSize());
+    }
+
+    @Test
+    public void testCacheEviction() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults().cacheSize(2);
+
+        qsd.queryEncoded("limit=1");
+        qsd.queryEncoded("limit=2");
+        qsd.queryEncoded("limit=1");
+        qsd.queryEncoded("limit=3");
+
+        Assert.assertEquals(1, qsd.getCache().getEvictions());
+        Assert.assertEquals(2, qsd.getCache().getSize());
+
+        qsd.queryEncoded("limit=1");
+        qsd.queryEncoded("limit=2");
+
+        Assert.assertEquals(2, qsd.getCache().getHits());
+        Assert.assertEquals(4, qsd.getCache().getMisses());
+        Assert.assertEquals(2, qsd.getCache().getEvictions());
+    }
+
+    @Test
+    public void testCacheReturnsSharedImmutableResults() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults().cacheSize(10);
+
+        QueryParameters query = qsd.queryEncoded("fields=name&filter=name:in:[a,b]");
+
+        Assert.assertSame(query, qsd.queryEncoded("fields=name&filter=name:in:[a,b]"));
+
+        try {
+            query.getFilters().get(0).getValues().clear();
+            Assert.fail("No exception was thrown");
+        } catch (UnsupportedOperationException e) {
+
+            Assert.assertEquals(2, query.getFilters().get(0).getValues().size());
+        }
+    }
+
+    @Test
+    public void testCacheClearedOnReconfiguration() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults().cacheSize(10);
+
+        Assert.assertEquals(100, qsd.queryEncoded("limit=200").getLimit().longValue());
+
+        qsd.maxLimit(50);
+
+        Assert.assertEquals(50, qsd.queryEncoded("limit=200").getLimit().longValue());
+        Assert.assertEquals(0, qsd.getCache().getHits());
+    }
+
+    @Test
+    public void testCacheDisabled() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults();
+
+        Assert.assertNull(qsd.getCache());
+        Assert.assertEquals(20, qsd.queryEncoded("limit=20").getLimit().longValue());
+    }
+
     @Test
     public void testEnabledPagination() {
 
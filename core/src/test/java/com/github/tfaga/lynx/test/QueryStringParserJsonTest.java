@@ -0,0 +1,238 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+import com.github.tfaga.lynx.utils.QueryStringDefaults;
+import com.github.tfaga.lynx.utils.QueryStringParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryStringParserJsonTest {
+
+    private static final String BODY = "{\n" +
+            "  \"limit\": 20,\n" +
+            "  \"offset\": \"40\",\n" +
+            "  \"order\": [{\"field\": \"name\", \"order\": \"desc\"}, {\"field\": \"id\"}],\n" +
+            "  \"fields\": [\"name\", \"id\", \"name\"],\n" +
+            "  \"unknown\": {\"nested\": [1, {\"a\": null}, true]},\n" +
+            "  \"filters\": [\n" +
+            "    {\"field\": \"id\", \"operation\": \"in\", \"values\": [1, 2, 2, \"3\", null]},\n" +
+            "    {\"operation\": \"GTE\", \"field\": \"createdAt\", \"dateValue\": \"2014-11-26T11:15:08Z\"},\n" +
+            "    {\"field\": \"name\", \"operation\": \"EQ\", \"value\": \"Tools & \\\"Furniture\\\" \\u017e\"},\n" +
+            "    {\"field\": \"email\", \"operation\": \"ISNULL\"}\n" +
+            "  ]\n" +
+            "}";
+
+    @Test
+    public void testParseJson() {
+
+        QueryParameters query = new QueryStringDefaults().parser().parseJson(BODY);
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+        Assert.assertEquals(40, query.getOffset().longValue());
+        Assert.assertEquals(2, query.getOrder().size());
+        Assert.assertEquals("name", query.getOrder().get(0).getField());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertEquals(OrderDirection.ASC, query.getOrder().get(1).getOrder());
+        Assert.assertEquals(2, query.getFields().size());
+        Assert.assertEquals(4, query.getFilters().size());
+        Assert.assertEquals(FilterOperation.ISNULL, query.getFilters().get(0).getOperation());
+        Assert.assertEquals(FilterOperation.IN, query.getFilters().get(1).getOperation());
+        Assert.assertEquals(3, query.getFilters().get(1).getValues().size());
+        Assert.assertEquals("3", query.getFilters().get(1).getValues().get(2));
+        Assert.assertEquals(Date.from(Instant.parse("2014-11-26T11:15:08Z")),
+                query.getFilters().get(2).getDateValue());
+        Assert.assertEquals("Tools & \"Furniture\" ž", query.getFilters().get(3).getValue());
+    }
+
+    @Test
+    public void testParseJsonMatchesQueryString() throws IOException {
+
+        QueryStringParser parser = new QueryStringDefaults().parser();
+
+        QueryParameters query = parser.parse("limit=5&order=id DESC&fields=id&filter=name:in:[a,b] age:gt:20");
+
+        QueryParameters json = parser.parseJson(new ByteArrayInputStream(("{\"limit\":5," +
+                "\"order\":[{\"field\":\"id\",\"order\":\"DESC\"}],\"fields\":[\"id\"]," +
+                "\"filters\":[{\"field\":\"name\",\"operation\":\"IN\",\"values\":[\"a\",\"b\"]}," +
+                "{\"field\":\"age\",\"operation\":\"GT\",\"value\":20}]}").getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(ImmutableQueryParameters.copyOf(query), ImmutableQueryParameters.copyOf(json));
+    }
+
+    @Test
+    public void testParseJsonCursor() {
+
+        QueryStringParser parser = new QueryStringDefaults().parser();
+
+        QueryParameters query = parser.parseJson("{\"limit\": 5, \"after\": \"AQAAAAEC\", \"before\": null}");
+
+        Assert.assertEquals(ImmutableQueryParameters.copyOf(parser.parse("limit=5&after=AQAAAAEC")),
+                ImmutableQueryParameters.copyOf(query));
+        Assert.assertEquals("AQAAAAED", parser.parseJson("{\"before\": \"AQAAAAED\"}").getBefore());
+    }
+
+    @Test
+    public void testParseJsonEmpty() {
+
+        QueryStringParser parser = new QueryStringDefaults().defaultLimit(15).parser();
+
+        Assert.assertEquals(15, parser.parseJson("").getLimit().longValue());
+        Assert.assertEquals(15, parser.parseJson(" {} ").getLimit().longValue());
+        Assert.assertEquals(15, parser.parseJson("{\"limit\": null}").getLimit().longValue());
+    }
+
+    @Test
+    public void testParseJsonPredicates() {
+
+        QueryParameters query = new QueryStringDefaults().maxLimit(10)
+                .allowFilter(f -> !f.getField().equals("secret"))
+                .allowOrder(o -> o.getField().equals("id"))
+                .allowField(f -> !f.equals("password"))
+                .parser().parseJson("{\"limit\": 100, \"order\": [{\"field\": \"name\"}, {\"field\": \"id\"}]," +
+                        "\"fields\": [\"password\", \"name\"], \"filters\": [{\"field\": \"secret\", " +
+                        "\"operation\": \"EQ\", \"value\": \"x\"}, {\"field\": \"name\", \"operation\": " +
+                        "\"EQ\", \"value\": \"y\"}]}");
+
+        Assert.assertEquals(10, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getOrder().size());
+        Assert.assertEquals("id", query.getOrder().get(0).getField());
+        Assert.assertEquals(1, query.getFields().size());
+        Assert.assertEquals("name", query.getFields().get(0));
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("name", query.getFilters().get(0).getField());
+    }
+
+    @Test
+    public void testParseJsonDisabled() {
+
+        QueryParameters query = new QueryStringDefaults().builder().enableFilters(false).enableOrder(false)
+                .parser().parseJson("{\"order\": [{\"field\": \"id\"}], \"filters\": [{\"field\": \"name\"}]}");
+
+        Assert.assertEquals(0, query.getOrder().size());
+        Assert.assertEquals(0, query.getFilters().size());
+    }
+
+    @Test
+    public void testParseJsonLargeInFilter() {
+
+        StringBuilder body = new StringBuilder("{\"filters\": [{\"field\": \"id\", \"operation\": \"IN\", \"values\": [");
+
+        for (int i = 0; i < 50000; i++) {
+
+            if (i > 0) body.append(',');
+
+            body.append(i);
+        }
+
+        body.append("]}]}");
+
+        QueryParameters query = new QueryStringDefaults().parser().parseJson(body);
+
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals(50000, query.getFilters().get(0).getValues().size());
+        Assert.assertEquals("49999", query.getFilters().get(0).getValues().get(49999));
+    }
+
+    @Test
+    public void testParseJsonMaxLength() throws IOException {
+
+        String body = "{\"limit\": 20, \"ignored\": \"" + new String(new char[5000]).replace('\0', 'x') + "\"}";
+
+        Assert.assertEquals(20, new QueryStringDefaults().maxQueryLength(body.length()).parser().parseJson(body)
+                .getLimit().longValue());
+
+        for (int length : new int[]{body.length() - 1, 100}) {
+
+            try {
+
+                new QueryStringDefaults().maxQueryLength(length).parser()
+                        .parseJson(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+                Assert.fail("No exception was thrown");
+            } catch (QueryFormatException e) {
+
+                Assert.assertNull(e.getField());
+                Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+            }
+        }
+    }
+
+    @Test
+    public void testParseJsonLimits() {
+
+        try {
+
+            new QueryStringDefaults().maxFilterValues(2).parser()
+                    .parseJson("{\"filters\": [{\"field\": \"id\", \"operation\": \"IN\", \"values\": [1, 2, 3]}]}");
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("filters", e.getField());
+            Assert.assertEquals(QueryFormatError.LIMIT_EXCEEDED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testParseJsonErrors() {
+
+        assertError("{\"limit\": -1}", "limit", QueryFormatError.NEGATIVE);
+        assertError("{\"limit\": 1.5}", "limit", QueryFormatError.NOT_A_NUMBER);
+        assertError("{\"order\": [{\"field\": \"id\", \"order\": \"UP\"}]}", "order",
+                QueryFormatError.NO_SUCH_CONSTANT);
+        assertError("{\"filters\": [{\"field\": \"id\", \"operation\": \"ABOUT\", \"value\": 1}]}", "filters",
+                QueryFormatError.NO_SUCH_CONSTANT);
+        assertError("{\"filters\": [{\"field\": \"id\", \"operation\": \"EQ\"}]}", "filters",
+                QueryFormatError.MALFORMED);
+        assertError("{\"filters\": [{\"field\": \"id\", \"operation\": \"GT\", \"dateValue\": \"yesterday\"}]}",
+                "filters", QueryFormatError.MALFORMED);
+        assertError("{\"filters\": [{\"operation\": \"ISNULL\"}]}", "filters", QueryFormatError.MALFORMED);
+    }
+
+    @Test
+    public void testParseJsonSyntaxErrors() {
+
+        assertError("[]", null, QueryFormatError.MALFORMED);
+        assertError("{\"limit\" 1}", null, QueryFormatError.MALFORMED);
+        assertError("{\"limit\": 1,}", null, QueryFormatError.MALFORMED);
+        assertError("{\"fields\": [\"a\",]}", null, QueryFormatError.MALFORMED);
+        assertError("{\"fields\": [\"a\" \"b\"]}", null, QueryFormatError.MALFORMED);
+        assertError("{\"fields\": [\"a]}", null, QueryFormatError.MALFORMED);
+        assertError("{\"limit\": 1} {}", null, QueryFormatError.MALFORMED);
+        assertError("{\"limit\": tru}", null, QueryFormatError.MALFORMED);
+        assertError("{\"fields\": {\"a\": 1}}", null, QueryFormatError.MALFORMED);
+
+        StringBuilder nested = new StringBuilder("{\"unknown\": ");
+
+        for (int i = 0; i < 100; i++) nested.append('[');
+
+        assertError(nested.toString(), null, QueryFormatError.MALFORMED);
+    }
+
+    private static void assertError(String body, String field, QueryFormatError reason) {
+
+        try {
+
+            new QueryStringDefaults().parser().parseJson(body);
+            Assert.fail("No exception was thrown for: " + body);
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals(field, e.getField());
+            Assert.assertEquals(reason, e.getReason());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.tfaga.lynx.test;
+
+import com.github.tfaga.lynx.beans.ImmutableQueryParameters;
+import com.github.tfaga.lynx.beans.QueryParameters;
+import com.github.tfaga.lynx.enums.FilterOperation;
+import com.github.tfaga.lynx.enums.OrderDirection;
+import com.github.tfaga.lynx.enums.QueryFormatError;
+import com.github.tfaga.lynx.exceptions.QueryFormatException;
+import com.github.tfaga.lynx.utils.QueryStringDefaults;
+import com.github.tfaga.lynx.utils.QueryStringParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryStringParserTest {
+
+    @Test
+    public void testParse() {
+
+        QueryStringParser parser = new QueryStringDefaults().maxLimit(50).parser();
+
+        QueryParameters query = parser.parse("limit=100&order=name DESC&fields=name,id&filter=name:in:[a,b]");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(50, query.getLimit().longValue());
+        Assert.assertEquals(0, query.getOffset().longValue());
+        Assert.assertEquals(1, query.getOrder().size());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertEquals(2, query.getFields().size());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals(FilterOperation.IN, query.getFilters().get(0).getOperation());
+    }
+
+    @Test
+    public void testParseEmpty() {
+
+        QueryStringParser parser = new QueryStringDefaults().defaultLimit(20).parser();
+
+        QueryParameters query = parser.parse(null);
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+
+        query = parser.parse(new StringBuilder());
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(20, query.getLimit().longValue());
+    }
+
+    @Test
+    public void testParseEncoded() {
+
+        QueryParameters query = new QueryStringDefaults().parser().parseEncoded("where=firstname:like:Kar%25");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("Kar%", query.getFilters().get(0).getValue());
+    }
+
+    @Test
+    public void testParseEncodedSeparators() {
+
+        QueryParameters query = new QueryStringDefaults().parser()
+                .parseEncoded("filter=name:eq:R%26D%3Dx&limit=5&fields=na%6De,%C5%BEival");
+
+        Assert.assertNotNull(query);
+        Assert.assertEquals(5, query.getLimit().longValue());
+        Assert.assertEquals(1, query.getFilters().size());
+        Assert.assertEquals("R&D=x", query.getFilters().get(0).getValue());
+        Assert.assertEquals(2, query.getFields().size());
+        Assert.assertEquals("name", query.getFields().get(0));
+        Assert.assertEquals("žival", query.getFields().get(1));
+    }
+
+    @Test
+    public void testParseEncodedMatchesDecoded() {
+
+        QueryStringParser parser = new QueryStringDefaults().parser();
+
+        Assert.assertEquals(
+                ImmutableQueryParameters.copyOf(parser.parse("order=createdAt DESC&filter=name:in:['a b',c] age:gt:20")),
+                ImmutableQueryParameters.copyOf(parser.parseEncoded(
+                        "order=createdAt%20DESC&filter=name%3Ain%3A%5B%27a%20b%27%2Cc%5D+age:gt:20")));
+    }
+
+    @Test
+    public void testParseEncodedMalformed() {
+
+        try {
+
+            new QueryStringDefaults().parser().parseEncoded("limit=10&where=firstname:like:Kar%2");
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("where", e.getField());
+            Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+        }
+
+        try {
+
+            new QueryStringDefaults().parser().parseEncoded("where=firstname:like:%zz");
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+        }
+
+        for (String query : new String[]{"limit=10&whe%zzre=firstname:eq:a", "limit=10&whe%zzre"}) {
+
+            try {
+
+                new QueryStringDefaults().parser().parseEncoded(query);
+                Assert.fail("No exception was thrown");
+            } catch (QueryFormatException e) {
+
+                Assert.assertEquals("whe%zzre", e.getField());
+                Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+            }
+        }
+    }
+
+    @Test
+    public void testParseIsolated() {
+
+        QueryStringParser parser = new QueryStringDefaults().parser();
+
+        QueryParameters first = parser.parse("limit=10&filter=name:eq:a");
+        QueryParameters second = parser.parse("offset=5");
+
+        Assert.assertEquals(10, first.getLimit().longValue());
+        Assert.assertEquals(1, first.getFilters().size());
+        Assert.assertEquals(10, second.getLimit().longValue());
+        Assert.assertEquals(5, second.getOffset().longValue());
+        Assert.assertEquals(0, second.getFilters().size());
+    }
+
+    @Test
+    public void testParseError() {
+
+        try {
+
+            new QueryStringDefaults().parser().parse("limit=abc");
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("limit", e.getField());
+            Assert.assertEquals(QueryFormatError.NOT_A_NUMBER, e.getReason());
+        }
+    }
+
+    @Test
+    public void testParserReused() {
+
+        QueryStringDefaults qsd = new QueryStringDefaults();
+
+        QueryStringParser parser = qsd.parser();
+
+        Assert.assertSame(parser, qsd.parser());
+
+        qsd.defaultLimit(30);
+
+        Assert.assertNotSame(parser, qsd.parser());
+        Assert.assertEquals(10, parser.parse("").getLimit().longValue());
+        Assert.assertEquals(30, qsd.parser().parse("").getLimit().longValue());
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+
+        QueryStringParser parser = new QueryStringDefaults().maxLimit(1000)
+                .allowFilter(f -> !f.getField().equals("secret")).parser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+
+            List<Future<Boolean>> results = new ArrayList<>();
+
+            for (int i = 0; i < 64; i++) {
+
+                final int limit = i;
+
+                results.add(executor.submit(() -> {
+
+                    for (int j = 0; j < 200; j++) {
+
+                        QueryParameters query = parser.parse("limit=" + limit + "&order=name,id DESC" +
+                                "&filter=name:in:[a," + j + "] secret:eq:" + j);
+
+                        if (query.getLimit() != limit || query.getOrder().size() != 2 ||
+                                query.getFilters().size() != 1 ||
+                                !query.getFilters().get(0).getValues().get(1).equals(String.valueOf(j))) {
+                            return false;
+                        }
+                    }
+
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.tfaga.lynx.test.benchmarks;
+
+import com.github.tfaga.lynx.test.entities.AccountEntity;
+import com.github.tfaga.lynx.utils.EntityProjector;
+
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the time to create entities from the tuples of a field projection with the cached
+ * method handles of {@link EntityProjector} and with a reflective lookup of the constructor and
+ * fields per row. The tuples are created in memory, so no database time is included. Not part of
+ * the test suite, run it with the test classpath and the dependencies:
+ * <pre>
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *     com.github.tfaga.lynx.test.benchmarks.EntityProjectorBenchmark
+ * </pre>
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class EntityProjectorBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private static final List<String> FIELDS = Arrays.asList("name", "value", "size", "id");
+
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int MEASURED_ITERATIONS = 2000;
+
+    public static void main(String[] args) throws Exception {
+
+        List<Tuple> tuples = createTuples();
+
+        measureReflection(tuples, WARMUP_ITERATIONS);
+        measureProjector(tuples, WARMUP_ITERATIONS);
+
+        double reflection = measureReflection(tuples, MEASURED_ITERATIONS) / 1000d;
+        double projector = measureProjector(tuples, MEASURED_ITERATIONS) / 1000d;
+
+        System.out.println(String.format("%12s %12s %12s", "method", "us/query", "ns/row"));
+        System.out.println(String.format("%12s %12.1f %12.1f", "reflection", reflection, reflection * 1000 / ROWS));
+        System.out.println(String.format("%12s %12.1f %12.1f", "projector", projector, projector * 1000 / ROWS));
+    }
+
+    private static long measureProjector(List<Tuple> tuples, int iterations) {
+
+        long blackhole = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+
+            List<AccountEntity> accounts = EntityProjector.of(AccountEntity.class, FIELDS).project(tuples);
+
+            blackhole += accounts.get(accounts.size() - 1).getId();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (blackhole == 0) throw new AssertionError();
+
+        return elapsed / iterations;
+    }
+
+    private static long measureReflection(List<Tuple> tuples, int iterations) throws Exception {
+
+        long blackhole = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+
+            List<AccountEntity> accounts = projectWithReflection(tuples);
+
+            blackhole += accounts.get(accounts.size() - 1).getId();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (blackhole == 0) throw new AssertionError();
+
+        return elapsed / iterations;
+    }
+
+    /**
+     * The projection as it was done before the projectors, with lookups for every row and field.
+     */
+    private static List<AccountEntity> projectWithReflection(List<Tuple> tuples) throws Exception {
+
+        List<AccountEntity> entities = new ArrayList<>();
+
+        for (Tuple t : tuples) {
+
+            AccountEntity el = AccountEntity.class.getConstructor().newInstance();
+
+            for (TupleElement<?> te : t.getElements()) {
+
+                Field f = getFieldFromEntity(AccountEntity.class, te.getAlias());
+                f.setAccessible(true);
+                f.set(el, t.get(te));
+            }
+
+            entities.add(el);
+        }
+
+        return entities;
+    }
+
+    private static Field getFieldFromEntity(Class entity, String fieldName) throws NoSuchFieldException {
+
+        try {
+            return entity.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+
+            if (entity.getSuperclass() == null) {
+                throw e;
+            }
+
+            return getFieldFromEntity(entity.getSuperclass(), fieldName);
+        }
+    }
+
+    private static List<Tuple> createTuples() {
+
+        List<TupleElement<?>> elements = new ArrayList<>();
+
+        for (String field : FIELDS) {
+            elements.add(new Element(field));
+        }
+
+        List<Tuple> tuples = new ArrayList<>(ROWS);
+
+        for (int i = 1; i <= ROWS; i++) {
+            tuples.add(new ArrayTuple(elements, new Object[]{"Name " + i, i % 100, i % 7, i}));
+        }
+
+        return tuples;
+    }
+
+    private static class Element implements TupleElement<Object> {
+
+        private final String alias;
+
+        private Element(String alias) {
+            this.alias = alias;
+        }
+
+        @Override
+        public Class<?> getJavaType() {
+            return Object.class;
+        }
+
+        @Override
+        public String getAlias() {
+            return alias;
+        }
+    }
+
+    private static class ArrayTuple implements Tuple {
+
+        private final List<TupleElement<?>> elements;
+        private final Object[] values;
+
+        private ArrayTuple(List<TupleElement<?>> elements, Object[] values) {
+            this.elements = elements;
+            this.values = values;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <X> X get(TupleElement<X> tupleElement) {
+            return (X) values[elements.indexOf(tupleElement)];
+        }
+
+        @Override
+        public <X> X get(String alias, Class<X> type) {
+            return type.cast(get(alias));
+        }
+
+        @Override
+        public Object get(String alias) {
+
+            for (int i = 0; i < elements.size(); i++) {
+                if (elements.get(i).getAlias().equals(alias)) return values[i];
+            }
+
+            throw new IllegalArgumentException(alias);
+        }
+
+        @Override
+        public <X> X get(int i, Class<X> type) {
+            return type.cast(values[i]);
+        }
+
+        @Override
+        public Object get(int i) {
+            return values[i];
+        }
+
+        @Override
+        public Object[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        public List<TupleElement<?>> getElements() {
+            return elements;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.tfaga.lynx.test.benchmarks;
+
+import com.github.tfaga.lynx.beans.QueryParameters;
+
+/**
+ * Measures how the query string parsing time scales with the number of quoted values in an IN
+ * filter. Not part of the test suite, run it with the test classpath:
+ * <pre>
+ * java -cp target/classes:target/test-classes \
+ *     com.github.tfaga.lynx.test.benchmarks.QueryStringBuilderBenchmark
+ * </pre>
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class QueryStringBuilderBenchmark {
+
+    private static final int[] SIZES = {1250, 2500, 5000, 10000, 20000};
+
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 100;
+
+    public static void main(String[] args) {
+
+        for (int size : SIZES) {
+            measure(createQuery(size), WARMUP_ITERATIONS);
+        }
+
+        System.out.println(String.format("%10s %12s %14s", "values", "us/query", "ns/value"));
+
+        for (int size : SIZES) {
+
+            double micros = measure(createQuery(size), MEASURED_ITERATIONS) / 1000d;
+
+            System.out.println(String.format("%10d %12.1f %14.1f", size, micros, micros * 1000 / size));
+        }
+    }
+
+    private static long measure(String query, int iterations) {
+
+        long blackhole = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            blackhole += q.getFilters().get(0).getValues().size();
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (blackhole == 0) throw new AssertionError();
+
+        return elapsed / iterations;
+    }
+
+    private static String createQuery(int size) {
+
+        StringBuilder sb = new StringBuilder("limit=20&order=createdAt DESC&filter=name:in:[");
+
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? "" : ",").append("'Name ").append(i).append("'");
+        }
+
+        return sb.append("] status:eq:ACTIVE").toString();
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.tfaga.lynx.test.entities;
 
+import com.github.tfaga.lynx.utils.CountCacheListener;
+
 import javax.persistence.*;
 import java.util.List;
 
@@ -9,18 +11,19 @@ import java.util.List;
  */
 @Entity
 @Table(name = "accounts")
+@EntityListeners(CountCacheListener.class)
 public class AccountEntity {
 
     @Id
     private Integer id;
 
-    @Column(name = "name")
+    @Column(name = "name", nullable = false)
     private String name;
 
-    @Column(name = "value")
+    @Column(name = "value", nullable = false)
     private Integer value;
 
-    @Column(name = "size")
+    @Column(name = "size", nullable = false)
     private Integer size;
 
     @Embedded
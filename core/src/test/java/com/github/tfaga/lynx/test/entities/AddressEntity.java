@@ -10,7 +10,7 @@ import javax.persistence.Embeddable;
 @Embeddable
 public class AddressEntity {
 
-    @Column(name = "country")
+    @Column(name = "country", nullable = false)
     private String country;
 
     public String getCountry() {
@@ -0,0 +1,30 @@
+package com.github.tfaga.lynx.test.projections;
+
+/**
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class AccountSummary {
+
+    private final String name;
+    private final Integer value;
+    private final String country;
+
+    public AccountSummary(String name, Integer value, String country) {
+        this.name = name;
+        this.value = value;
+        this.country = country;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Integer getValue() {
+        return value;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+}
@@ -3,6 +3,7 @@ package com.github.tfaga.lynx.test.utils;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.Collections;
 
 /**
  * @author Tilen Faganel
@@ -36,4 +37,17 @@ public class JpaUtil {
     public EntityManager getHibernateEntityManager() {
         return emfHibernate.createEntityManager();
     }
+
+    /**
+     * Creates another entity manager factory of the same provider as the entity manager, over a
+     * separate in memory database with the same data. The caller has to close it.
+     */
+    public EntityManagerFactory createEntityManagerFactory(EntityManager em, String database) {
+
+        boolean eclipselink = em.getEntityManagerFactory() == emfEclipseLink;
+
+        return Persistence.createEntityManagerFactory(eclipselink ? "lynx-eclipselink" : "lynx-hibernate",
+                Collections.singletonMap("javax.persistence.jdbc.url", "jdbc:h2:mem:" + database +
+                        (eclipselink ? "-el" : "-hib") + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"));
+    }
 }
@@ -0,0 +1,66 @@
+package com.github.tfaga.lynx.test.utils;
+
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.jpa.JpaQuery;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Returns the SQL that the persistence providers generate for queries.
+ *
+ * @author Tilen Faganel
+ * @since 1.3.0
+ */
+public class SqlUtil {
+
+    /**
+     * Returns the SQL of the query. EclipseLink prepares the query without executing it, while
+     * Hibernate executes it and the first statement printed by {@code hibernate.show_sql} is
+     * captured, as the following ones load the relations of the results.
+     */
+    public static String getSql(EntityManager em, Query query) {
+
+        if (em.getDelegate().getClass().getName().startsWith("org.eclipse.persistence")) {
+
+            DatabaseQuery databaseQuery = query.unwrap(JpaQuery.class).getDatabaseQuery();
+            databaseQuery.prepareCall(em.unwrap(Session.class), new DatabaseRecord());
+
+            return databaseQuery.getSQLString();
+        }
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+        System.setOut(new PrintStream(captured, true));
+
+        try {
+            query.getResultList();
+        } finally {
+            System.setOut(out);
+        }
+
+        return captured.toString().split("\\R")[0];
+    }
+
+    /**
+     * Returns the number of times the table appears in the SQL, which is one more than the number
+     * of joins to it when it is also the table of the root.
+     */
+    public static int countTable(String sql, String table) {
+
+        Matcher matcher = Pattern.compile("\\b" + table + "\\b", Pattern.CASE_INSENSITIVE).matcher(sql);
+
+        int count = 0;
+
+        while (matcher.find()) count++;
+
+        return count;
+    }
+}